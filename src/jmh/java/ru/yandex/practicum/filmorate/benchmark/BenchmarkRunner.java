@@ -0,0 +1,43 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.File;
+
+/*
+ * Запуск: mvn -Pbenchmark test-compile exec:exec
+ * Число потоков - -Dbenchmark.threads=1,4,8, остальные параметры JMH передаются строкой,
+ * например -Dbenchmark.args="-p films=1000,100000 -p users=5000 UserStorageBenchmark".
+ * Для каждого числа потоков результаты пишутся в отдельный JSON в benchmark.result.dir,
+ * чтобы их можно было сравнивать между релизами.
+ */
+public class BenchmarkRunner {
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException {
+        String[] jmhArgs = String.join(" ", args).trim().isEmpty()
+                ? new String[0]
+                : String.join(" ", args).trim().split("\\s+");
+        CommandLineOptions commandLine = new CommandLineOptions(jmhArgs);
+        File resultDir = new File(System.getProperty("benchmark.result.dir", "target/jmh"));
+        resultDir.mkdirs();
+
+        for (String threads : System.getProperty("benchmark.threads", "1").split(",")) {
+            ChainedOptionsBuilder options = new OptionsBuilder()
+                    .parent(commandLine)
+                    .threads(Integer.parseInt(threads.trim()))
+                    .resultFormat(ResultFormatType.JSON)
+                    .result(new File(resultDir, "storage-threads-" + threads.trim() + ".json").getPath());
+
+            if (commandLine.getIncludes().isEmpty()) {
+                options.include(BenchmarkRunner.class.getPackageName() + ".*Benchmark");
+            }
+
+            new Runner(options.build()).run();
+        }
+    }
+}
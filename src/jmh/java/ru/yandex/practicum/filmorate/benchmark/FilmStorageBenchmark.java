@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.Film;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class FilmStorageBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Random random = new Random();
+        int likingUser;
+        int likedFilm;
+
+        @Setup
+        public void setUp(FilmorateDataSet dataSet) {
+            likingUser = dataSet.nextReservedUser();
+        }
+    }
+
+    @Benchmark
+    public Film get(FilmorateDataSet dataSet, ThreadState state) {
+        return dataSet.filmStorage.get(dataSet.randomFilm(state.random));
+    }
+
+    @Benchmark
+    public List<Film> getAll(FilmorateDataSet dataSet) {
+        return dataSet.filmStorage.getAll();
+    }
+
+    @Benchmark
+    public List<Film> getPopularFilms(FilmorateDataSet dataSet) {
+        return dataSet.filmStorage.getPopularFilms(10);
+    }
+
+    @Benchmark
+    public List<Film> getRecommendations(FilmorateDataSet dataSet, ThreadState state) {
+        return dataSet.filmStorage.getRecommendations(dataSet.randomUser(state.random), 10);
+    }
+
+    // Лайк и его снятие, чтобы каждая итерация ставила лайк, которого еще нет
+    @Benchmark
+    public void putLikeOnFilm(FilmorateDataSet dataSet, ThreadState state) {
+        state.likedFilm = state.likedFilm % dataSet.films + 1;
+        dataSet.filmStorage.putLikeOnFilm(state.likedFilm, state.likingUser);
+        dataSet.filmStorage.deleteLikeOnFilm(state.likedFilm, state.likingUser);
+    }
+}
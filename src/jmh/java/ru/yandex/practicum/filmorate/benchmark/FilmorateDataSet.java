@@ -0,0 +1,65 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Приложение без веб-слоя с синтетическими данными, общее для всех потоков бенчмарка
+@State(Scope.Benchmark)
+public class FilmorateDataSet {
+    static final int RESERVED_USERS = 256;
+    private static final long SEED = 42;
+
+    @Param({"1000", "10000"})
+    public int films;
+
+    @Param({"1000", "10000"})
+    public int users;
+
+    @Param({"10"})
+    public int likesPerUser;
+
+    @Param({"20"})
+    public int friendsPerUser;
+
+    FilmStorage filmStorage;
+    UserStorage userStorage;
+    private ConfigurableApplicationContext context;
+    private final AtomicInteger reservedUsers = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = SyntheticData.start(WebApplicationType.NONE);
+        SyntheticData.seed(context, new Random(SEED), films, users, RESERVED_USERS, likesPerUser, friendsPerUser);
+        filmStorage = context.getBean(FilmStorage.class);
+        userStorage = context.getBean(UserStorage.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    int randomFilm(Random random) {
+        return random.nextInt(films) + 1;
+    }
+
+    int randomUser(Random random) {
+        return random.nextInt(users) + 1;
+    }
+
+    // Каждый поток бенчмарка получает своего пользователя без лайков
+    int nextReservedUser() {
+        return users + reservedUsers.getAndIncrement() % RESERVED_USERS + 1;
+    }
+}
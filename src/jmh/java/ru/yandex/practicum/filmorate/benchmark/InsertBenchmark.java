@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Вставка через переиспользуемый SimpleJdbcInsert против прежнего варианта, где insert собирался заново
+ * (и заново читал метаданные таблицы) на каждый вызов, и полный вызов сервиса для сравнения.
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.args="InsertBenchmark"
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class InsertBenchmark {
+
+    // Пустая база: вставкам синтетические данные не нужны
+    @State(Scope.Benchmark)
+    public static class Application {
+        private final AtomicLong logins = new AtomicLong();
+        private ConfigurableApplicationContext context;
+        private JdbcTemplate jdbcTemplate;
+        private UserService userService;
+        private FilmService filmService;
+        private SimpleJdbcInsert reusedUserInsert;
+        private SimpleJdbcInsert reusedFilmInsert;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            context = SyntheticData.start(WebApplicationType.NONE);
+            jdbcTemplate = context.getBean(JdbcTemplate.class);
+            userService = context.getBean(UserService.class);
+            filmService = context.getBean(FilmService.class);
+            reusedUserInsert = userInsert();
+            reusedFilmInsert = filmInsert();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            context.close();
+        }
+
+        // Так insert собирался в хранилищах до переиспользования
+        private SimpleJdbcInsert userInsert() {
+            return new SimpleJdbcInsert(jdbcTemplate)
+                    .withTableName("users")
+                    .usingGeneratedKeyColumns("id");
+        }
+
+        private SimpleJdbcInsert filmInsert() {
+            return new SimpleJdbcInsert(jdbcTemplate)
+                    .withTableName("films")
+                    .usingGeneratedKeyColumns("film_id");
+        }
+
+        // email и login уникальны, поэтому у каждой вставки свои
+        private String nextLogin() {
+            return "user" + logins.incrementAndGet();
+        }
+    }
+
+    @Benchmark
+    public Number reusedUserInsert(Application application) {
+        return application.reusedUserInsert.executeAndReturnKey(userRow(application.nextLogin()));
+    }
+
+    @Benchmark
+    public Number rebuiltUserInsert(Application application) {
+        return application.userInsert().executeAndReturnKey(userRow(application.nextLogin()));
+    }
+
+    @Benchmark
+    public User createUser(Application application) {
+        String login = application.nextLogin();
+
+        return application.userService.create(User.builder()
+                .email(login + "@yandex.ru")
+                .login(login)
+                .birthday(LocalDate.of(2000, 1, 1))
+                .build());
+    }
+
+    @Benchmark
+    public Number reusedFilmInsert(Application application) {
+        return application.reusedFilmInsert.executeAndReturnKey(filmRow());
+    }
+
+    @Benchmark
+    public Number rebuiltFilmInsert(Application application) {
+        return application.filmInsert().executeAndReturnKey(filmRow());
+    }
+
+    @Benchmark
+    public Film addFilm(Application application) {
+        return application.filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Benchmark")
+                .duration(100)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(MPA.builder().id(1).build())
+                .build());
+    }
+
+    private static Map<String, Object> userRow(String login) {
+        return Map.of(
+                "name", login,
+                "email", login + "@yandex.ru",
+                "login", login,
+                "birthday", LocalDate.of(2000, 1, 1));
+    }
+
+    private static Map<String, Object> filmRow() {
+        return Map.of(
+                "name", "Film",
+                "description", "Benchmark",
+                "release_date", LocalDate.of(2000, 1, 1),
+                "duration", 100,
+                "mpa_id", 1,
+                "likes_count", 0,
+                "genre_mask", 0);
+    }
+}
@@ -0,0 +1,316 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.HdrHistogram.ConcurrentHistogram;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.PrintStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/*
+ * Нагрузочный прогон через настоящий HTTP-стек: приложение поднимается на случайном порту,
+ * запросы отправляются с постоянной частотой rate независимо от того, успевает ли сервер отвечать.
+ * Задержка считается от запланированного момента отправки, поэтому очередь на клиенте тоже попадает
+ * в гистограмму и медленный сервер не прячется за уменьшившимся потоком запросов.
+ *
+ * Запуск: mvn -Pbenchmark test-compile exec:exec -Dbenchmark.main=LoadTestRunner
+ *         -Dbenchmark.args="rate=1000 duration=60 mix=getFilm:50,like:50"
+ * Параметры и значения по умолчанию - в DEFAULTS, смесь запросов - имена из Operation с весами.
+ */
+public class LoadTestRunner {
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "rate", "500",
+            "duration", "30",
+            "warmup", "5",
+            "clients", "64",
+            "films", "10000",
+            "users", "10000",
+            "mix", "getFilm:30,getFilms:2,getPopular:15,getUser:10,getFriends:15,getCommonFriends:8,like:10,friend:10");
+    private static final long MAX_LATENCY_US = TimeUnit.MINUTES.toMicros(1);
+    private static final long SEED = 42;
+
+    private final Map<String, String> options;
+    private final Operation[] schedule;
+    private final Map<Operation, Histogram> histograms = new EnumMap<>(Operation.class);
+    private final Map<Operation, AtomicLong> errors = new EnumMap<>(Operation.class);
+    private final int films;
+    private final int users;
+    private HttpClient client;
+    private final AtomicLong inFlight = new AtomicLong();
+    private URI baseUri;
+
+    LoadTestRunner(Map<String, String> options) {
+        this.options = options;
+        this.films = Integer.parseInt(options.get("films"));
+        this.users = Integer.parseInt(options.get("users"));
+        this.schedule = parseMix(options.get("mix"));
+
+        for (Operation operation : schedule) {
+            histograms.computeIfAbsent(operation, op -> new ConcurrentHistogram(MAX_LATENCY_US, 3));
+            errors.computeIfAbsent(operation, op -> new AtomicLong());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+
+        for (String arg : String.join(" ", args).trim().split("\\s+")) {
+            if (!arg.isEmpty()) {
+                String[] pair = arg.split("=", 2);
+                options.put(pair[0], pair[1]);
+            }
+        }
+
+        new LoadTestRunner(options).run();
+    }
+
+    void run() throws Exception {
+        ConfigurableApplicationContext context = SyntheticData.start(WebApplicationType.SERVLET, "--server.port=0");
+        int clients = Integer.parseInt(options.get("clients"));
+        ExecutorService executor = Executors.newFixedThreadPool(clients);
+
+        try {
+            SyntheticData.seed(context, new Random(SEED), films, users, 0, 10, 20);
+            baseUri = URI.create("http://localhost:" + context.getEnvironment().getProperty("local.server.port"));
+            client = HttpClient.newBuilder()
+                    .version(HttpClient.Version.HTTP_1_1)
+                    .build();
+
+            long warmupNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("warmup")));
+            long durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(options.get("duration")));
+
+            fire(executor, warmupNanos, false);
+            awaitInFlight();
+            fire(executor, durationNanos, true);
+
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+            report(durationNanos);
+        } finally {
+            executor.shutdownNow();
+            context.close();
+        }
+    }
+
+    // Открытая модель нагрузки: i-й запрос планируется на start + i * period, даже если предыдущие еще не вернулись
+    private void fire(ExecutorService executor, long durationNanos, boolean record) {
+        long period = TimeUnit.SECONDS.toNanos(1) / Long.parseLong(options.get("rate"));
+        long start = System.nanoTime();
+
+        for (long i = 0; i * period < durationNanos; i++) {
+            long intended = start + i * period;
+            long delay = intended - System.nanoTime();
+
+            if (delay > 0) {
+                LockSupport.parkNanos(delay);
+            }
+
+            Operation operation = schedule[(int) (i % schedule.length)];
+            inFlight.incrementAndGet();
+            executor.execute(() -> send(operation, intended, record));
+        }
+    }
+
+    // Хвост прогрева не должен попасть в измерения
+    private void awaitInFlight() throws InterruptedException {
+        while (inFlight.get() > 0) {
+            Thread.sleep(10);
+        }
+    }
+
+    private void send(Operation operation, long intended, boolean record) {
+        boolean failed;
+
+        try {
+            HttpResponse<Void> response = client.send(operation.request(baseUri, ThreadLocalRandom.current(), films, users),
+                    HttpResponse.BodyHandlers.discarding());
+            failed = response.statusCode() >= 400;
+        } catch (Exception ex) {
+            failed = true;
+        }
+
+        inFlight.decrementAndGet();
+
+        if (record) {
+            long latency = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intended);
+            histograms.get(operation).recordValue(Math.min(latency, MAX_LATENCY_US));
+
+            if (failed) {
+                errors.get(operation).incrementAndGet();
+            }
+        }
+    }
+
+    private void report(long durationNanos) throws FileNotFoundException {
+        File resultDir = new File(System.getProperty("benchmark.result.dir", "target/jmh"));
+        resultDir.mkdirs();
+        double seconds = durationNanos / 1e9;
+        Histogram total = new Histogram(MAX_LATENCY_US, 3);
+
+        try (PrintStream summary = new PrintStream(new File(resultDir, "load-test.txt"))) {
+            String header = String.format("%-18s %9s %8s %9s %10s %10s %10s %10s",
+                    "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            System.out.println(header);
+            summary.println(header);
+
+            for (Map.Entry<Operation, Histogram> entry : histograms.entrySet()) {
+                Histogram histogram = entry.getValue();
+                total.add(histogram);
+                String line = formatLine(entry.getKey().name, histogram, errors.get(entry.getKey()).get(), seconds);
+                System.out.println(line);
+                summary.println(line);
+
+                try (PrintStream distribution = new PrintStream(new File(resultDir, "load-" + entry.getKey().name + ".hgrm"))) {
+                    histogram.outputPercentileDistribution(distribution, 1000.0);
+                }
+            }
+
+            long totalErrors = errors.values().stream().mapToLong(AtomicLong::get).sum();
+            String line = formatLine("total", total, totalErrors, seconds);
+            System.out.println(line);
+            summary.println(line);
+        }
+    }
+
+    private static String formatLine(String name, Histogram histogram, long errors, double seconds) {
+        return String.format("%-18s %9d %8d %9.1f %10.2f %10.2f %10.2f %10.2f",
+                name,
+                histogram.getTotalCount(),
+                errors,
+                histogram.getTotalCount() / seconds,
+                histogram.getValueAtPercentile(50) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0,
+                histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+
+    // Смесь вида "getFilm:30,like:10" превращается в перемешанное расписание длиной в сумму весов
+    private static Operation[] parseMix(String mix) {
+        Map<Operation, Integer> weights = new LinkedHashMap<>();
+
+        for (String part : mix.split(",")) {
+            String[] pair = part.trim().split(":");
+            weights.put(Operation.of(pair[0]), pair.length > 1 ? Integer.parseInt(pair[1]) : 1);
+        }
+
+        Operation[] schedule = weights.entrySet().stream()
+                .flatMap(entry -> Collections.nCopies(entry.getValue(), entry.getKey()).stream())
+                .toArray(Operation[]::new);
+        Random random = new Random(SEED);
+
+        for (int i = schedule.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            Operation swap = schedule[i];
+            schedule[i] = schedule[j];
+            schedule[j] = swap;
+        }
+
+        return schedule;
+    }
+
+    /*
+     * Пишущие операции выбирают действие случайно: лайк или его снятие, добавление или удаление друга.
+     * Часть из них закономерно получает 4xx (повторный лайк и т.п.) - такие ответы тоже проходят
+     * весь стек и учитываются отдельно в колонке errors.
+     */
+    private enum Operation {
+        GET_FILM("getFilm") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/films/" + (random.nextInt(films) + 1));
+            }
+        },
+        GET_FILMS("getFilms") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/films?after=" + random.nextInt(films) + "&limit=100");
+            }
+        },
+        GET_POPULAR("getPopular") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/films/popular?count=10");
+            }
+        },
+        GET_USER("getUser") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/users/" + (random.nextInt(users) + 1));
+            }
+        },
+        GET_FRIENDS("getFriends") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/users/" + (random.nextInt(users) + 1) + "/friends");
+            }
+        },
+        GET_COMMON_FRIENDS("getCommonFriends") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                return get(base, "/users/" + (random.nextInt(users) + 1) + "/friends/common/" + (random.nextInt(users) + 1));
+            }
+        },
+        LIKE("like") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                String path = "/films/" + (random.nextInt(films) + 1) + "/like/" + (random.nextInt(users) + 1);
+                return random.nextBoolean() ? put(base, path) : delete(base, path);
+            }
+        },
+        FRIEND("friend") {
+            @Override
+            HttpRequest request(URI base, Random random, int films, int users) {
+                String path = "/users/" + (random.nextInt(users) + 1) + "/friends/" + (random.nextInt(users) + 1);
+                return random.nextBoolean() ? put(base, path) : delete(base, path);
+            }
+        };
+
+        private final String name;
+
+        Operation(String name) {
+            this.name = name;
+        }
+
+        abstract HttpRequest request(URI base, Random random, int films, int users);
+
+        static Operation of(String name) {
+            for (Operation operation : values()) {
+                if (operation.name.equals(name)) {
+                    return operation;
+                }
+            }
+
+            throw new IllegalArgumentException("Неизвестная операция: " + name);
+        }
+
+        private static HttpRequest get(URI base, String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).GET().build();
+        }
+
+        private static HttpRequest put(URI base, String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).PUT(HttpRequest.BodyPublishers.noBody()).build();
+        }
+
+        private static HttpRequest delete(URI base, String path) {
+            return HttpRequest.newBuilder(base.resolve(path)).DELETE().build();
+        }
+    }
+}
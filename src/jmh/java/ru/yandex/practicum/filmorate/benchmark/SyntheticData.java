@@ -0,0 +1,122 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.yandex.practicum.filmorate.FilmorateApplication;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+
+/*
+ * Запуск приложения поверх отдельной in-memory H2 и заполнение ее синтетическими данными.
+ * Лайки распределены неравномерно: фильмы с меньшим id получают заметно больше лайков,
+ * у каждого пользователя friendsPerUser случайных друзей.
+ * Последние reservedUsers пользователей ничего не лайкают и ни с кем не дружат.
+ */
+final class SyntheticData {
+    private static final int CHUNK_SIZE = 1000;
+
+    private SyntheticData() {
+    }
+
+    static ConfigurableApplicationContext start(WebApplicationType webType, String... args) {
+        List<String> allArgs = new ArrayList<>(List.of(
+                "--spring.datasource.url=jdbc:h2:mem:benchmark-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN"));
+        allArgs.addAll(List.of(args));
+
+        return new SpringApplicationBuilder(FilmorateApplication.class)
+                .web(webType)
+                .run(allArgs.toArray(new String[0]));
+    }
+
+    static void seed(ConfigurableApplicationContext context,
+                     Random random,
+                     int films,
+                     int users,
+                     int reservedUsers,
+                     int likesPerUser,
+                     int friendsPerUser) {
+        FilmStorage filmStorage = context.getBean(FilmStorage.class);
+        UserStorage userStorage = context.getBean(UserStorage.class);
+        List<Film> filmChunk = new ArrayList<>(CHUNK_SIZE);
+
+        for (int i = 0; i < films; i++) {
+            filmChunk.add(Film.builder()
+                    .name("Film " + i)
+                    .description("Benchmark film " + i)
+                    .releaseDate(LocalDate.of(1950, 1, 1).plusDays(random.nextInt(25_000)))
+                    .duration(60 + random.nextInt(120))
+                    .rate(0)
+                    .mpa(MPA.builder().id(random.nextInt(5) + 1).build())
+                    .genres(new HashSet<>(List.of(FilmGenre.builder().id(random.nextInt(6) + 1).build(),
+                            FilmGenre.builder().id(random.nextInt(6) + 1).build())))
+                    .build());
+
+            if (filmChunk.size() == CHUNK_SIZE) {
+                filmStorage.addAll(filmChunk);
+                filmChunk.clear();
+            }
+        }
+
+        filmStorage.addAll(filmChunk);
+
+        List<User> userChunk = new ArrayList<>(CHUNK_SIZE);
+
+        for (int i = 0; i < users + reservedUsers; i++) {
+            userChunk.add(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1970, 1, 1).plusDays(random.nextInt(15_000)))
+                    .build());
+
+            if (userChunk.size() == CHUNK_SIZE) {
+                userStorage.createAll(userChunk);
+                userChunk.clear();
+            }
+        }
+
+        userStorage.createAll(userChunk);
+
+        List<Like> likes = new ArrayList<>(CHUNK_SIZE);
+        List<Friendship> friendships = new ArrayList<>(CHUNK_SIZE);
+
+        for (int userId = 1; userId <= users; userId++) {
+            for (int i = 0; i < likesPerUser; i++) {
+                double skewed = Math.pow(random.nextDouble(), 2);
+                likes.add(Like.builder().filmId((int) (skewed * films) + 1).userId(userId).build());
+            }
+
+            for (int i = 0; i < friendsPerUser; i++) {
+                friendships.add(Friendship.builder().userId(userId).friendId(random.nextInt(users) + 1).build());
+            }
+
+            if (likes.size() >= CHUNK_SIZE) {
+                filmStorage.putLikes(likes);
+                likes.clear();
+            }
+
+            if (friendships.size() >= CHUNK_SIZE) {
+                userStorage.addFriends(friendships);
+                friendships.clear();
+            }
+        }
+
+        filmStorage.putLikes(likes);
+        userStorage.addFriends(friendships);
+    }
+}
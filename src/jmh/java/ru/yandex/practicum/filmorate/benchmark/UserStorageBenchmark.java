@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.yandex.practicum.filmorate.model.User;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class UserStorageBenchmark {
+
+    @State(Scope.Thread)
+    public static class ThreadState {
+        final Random random = new Random();
+    }
+
+    @Benchmark
+    public List<User> getFriends(FilmorateDataSet dataSet, ThreadState state) {
+        return dataSet.userStorage.getFriends(dataSet.randomUser(state.random));
+    }
+
+    @Benchmark
+    public List<User> getCommonFriends(FilmorateDataSet dataSet, ThreadState state) {
+        return dataSet.userStorage.getCommonFriends(dataSet.randomUser(state.random),
+                dataSet.randomUser(state.random));
+    }
+
+    @Benchmark
+    public List<User> getFriendSuggestions(FilmorateDataSet dataSet, ThreadState state) {
+        return dataSet.userStorage.getFriendSuggestions(dataSet.randomUser(state.random), 10);
+    }
+}
@@ -0,0 +1,17 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+// ETag из версий ресурса. Слабый: версия описывает данные, а не байты конкретного ответа
+final class ETags {
+    private ETags() {
+    }
+
+    static String of(String resource, long... versions) {
+        StringBuilder etag = new StringBuilder("W/\"").append(resource);
+
+        for (long version : versions) {
+            etag.append('-').append(Long.toString(version, Character.MAX_RADIX));
+        }
+
+        return etag.append('"').toString();
+    }
+}
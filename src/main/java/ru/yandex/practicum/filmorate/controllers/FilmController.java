@@ -1,13 +1,27 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
 import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Pattern;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
 import java.util.*;
 
 @RestController
@@ -15,12 +29,24 @@ import java.util.*;
 @Slf4j
 @Validated
 public class FilmController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+    // Топ собирается из индекса целиком в один ответ, поэтому его длина ограничена
+    private static final int MAX_POPULAR_COUNT = 1000;
 
     private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final BulkImportService bulkImportService;
+    private final ResourceVersions versions;
 
     @Autowired
-    public FilmController(FilmService filmService) {
+    public FilmController(FilmService filmService,
+                          ObjectMapper objectMapper,
+                          BulkImportService bulkImportService,
+                          ResourceVersions versions) {
         this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.bulkImportService = bulkImportService;
+        this.versions = versions;
     }
 
     @PostMapping
@@ -29,6 +55,18 @@ public class FilmController {
         return filmService.addFilm(film);
     }
 
+    @PostMapping("/bulk")
+    public BulkImportResult addFilms(InputStream ndjson) {
+        log.info("addFilms");
+        return bulkImportService.importFilms(ndjson);
+    }
+
+    @PostMapping("/likes/bulk")
+    public BulkImportResult putLikes(InputStream ndjson) {
+        log.info("putLikes");
+        return bulkImportService.importLikes(ndjson);
+    }
+
     @PutMapping
     public Film updateFilm(@Valid @RequestBody Film film) {
         log.info("updateFilm");
@@ -36,9 +74,48 @@ public class FilmController {
     }
 
     @GetMapping
-    public List<Film> getFilms() {
+    public List<Film> getFilms(@RequestParam(required = false) @PositiveOrZero Integer after,
+                               @RequestParam(required = false) @Positive Integer limit) {
         log.info("getFilms");
-        return filmService.getFilms();
+
+        // Без параметров отдаем весь список, как и раньше
+        if (after == null && limit == null) {
+            return filmService.getFilms();
+        }
+
+        return filmService.getFilmsPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping("/search")
+    public FilmSearchResult searchFilms(@RequestParam(required = false) Set<Integer> genre,
+                                        @RequestParam(required = false) Set<Integer> mpa,
+                                        @RequestParam(required = false) Integer yearFrom,
+                                        @RequestParam(required = false) Integer yearTo,
+                                        @RequestParam(required = false) String q,
+                                        @RequestParam(required = false)
+                                        @Pattern(regexp = "popular|date|relevance") String sort,
+                                        @RequestParam(defaultValue = "0") @PositiveOrZero int offset,
+                                        @RequestParam(defaultValue = "" + DEFAULT_PAGE_SIZE) @Positive int limit) {
+        log.info("searchFilms");
+        return filmService.searchFilms(FilmSearchQuery.builder()
+                .genres(genre)
+                .mpa(mpa)
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .text(q)
+                .sort(sort != null
+                        ? FilmSearchQuery.Sort.valueOf(sort.toUpperCase())
+                        // С текстом по умолчанию сначала самые подходящие, без него - самые популярные
+                        : q != null && !q.isBlank() ? FilmSearchQuery.Sort.RELEVANCE : FilmSearchQuery.Sort.POPULAR)
+                .offset(offset)
+                .limit(limit)
+                .build());
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonStreams.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportFilms() {
+        log.info("exportFilms");
+        return NdjsonStreams.stream(objectMapper, filmService::exportFilms);
     }
 
     @PutMapping("/{filmId}/like/{userId}")
@@ -54,14 +131,37 @@ public class FilmController {
     }
 
     @GetMapping("/popular")
-    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") int count) {
+    public List<Film> getPopularFilms(@RequestParam(defaultValue = "10") @Positive @Max(MAX_POPULAR_COUNT) int count,
+                                      @RequestParam(required = false) Integer genreId,
+                                      @RequestParam(required = false) Integer year,
+                                      @RequestParam(required = false) Integer mpaId,
+                                      WebRequest request) {
         log.info("getPopularFilms");
-        return filmService.getPopularFilms(count);
+
+        // Версия меняется при любой записи в фильмы, неизмененный список отдаем как 304 без обращения к базе
+        if (request.checkNotModified(ETags.of(popularResource(genreId, year, mpaId), versions.filmsVersion(), count))) {
+            return null;
+        }
+
+        return filmService.getPopularFilms(count, genreId, year, mpaId);
     }
 
     @GetMapping("/{id}")
-    public Film getFilm(@PathVariable int id) {
+    public Film getFilm(@PathVariable int id, WebRequest request) {
         log.info("getFilm");
+
+        if (request.checkNotModified(ETags.of("film", versions.filmVersion(id)))) {
+            return null;
+        }
+
         return filmService.getFilm(id);
     }
+
+    // У каждого сочетания фильтров свой ETag, иначе 304 на один топ подтвердил бы кешированный другой
+    private static String popularResource(Integer genreId, Integer year, Integer mpaId) {
+        return "popular"
+                + (genreId == null ? "" : "-g" + genreId)
+                + (year == null ? "" : "-y" + year)
+                + (mpaId == null ? "" : "-m" + mpaId);
+    }
 }
@@ -1,32 +1,32 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.model.FilmGenre;
 import ru.yandex.practicum.filmorate.service.GenreService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/genres")
 public class GenreController {
     private final GenreService genre;
+    private final ReferenceResponseCache responses;
 
     @Autowired
-    public GenreController(GenreService genre) {
+    public GenreController(GenreService genre, ReferenceResponseCache responses) {
         this.genre = genre;
+        this.responses = responses;
     }
 
     @GetMapping
-    public List<FilmGenre> getAllGenres() {
-        return genre.getAllGenre();
+    public ResponseEntity<byte[]> getAllGenres() {
+        return responses.allGenres();
     }
 
     @GetMapping("/{id}")
-    public FilmGenre getGenreById(@PathVariable int id) {
-        return genre.getGenreById(id);
+    public ResponseEntity<byte[]> getGenreById(@PathVariable int id) {
+        return responses.genre(id, () -> genre.getGenreById(id));
     }
 }
@@ -1,32 +1,32 @@
 package ru.yandex.practicum.filmorate.controllers;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
-import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.service.MPAService;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/mpa")
 public class MPAController {
     private final MPAService mpa;
+    private final ReferenceResponseCache responses;
 
     @Autowired
-    public MPAController(MPAService mpa) {
+    public MPAController(MPAService mpa, ReferenceResponseCache responses) {
         this.mpa = mpa;
+        this.responses = responses;
     }
 
     @GetMapping
-    public List<MPA> getAllMPA() {
-        return mpa.getAllMPA();
+    public ResponseEntity<byte[]> getAllMPA() {
+        return responses.allMPA();
     }
 
     @GetMapping("/{id}")
-    public MPA getMPAById(@PathVariable int id) {
-        return mpa.getMPAById(id);
+    public ResponseEntity<byte[]> getMPAById(@PathVariable int id) {
+        return responses.mpa(id, () -> mpa.getMPAById(id));
     }
 }
\ No newline at end of file
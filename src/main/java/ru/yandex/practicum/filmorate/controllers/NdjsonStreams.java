@@ -0,0 +1,34 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+// Ответ в формате NDJSON: по одному JSON-объекту на строку, объекты пишутся в ответ по мере чтения из базы
+final class NdjsonStreams {
+    static final String MEDIA_TYPE = "application/x-ndjson";
+
+    private NdjsonStreams() {
+    }
+
+    // produces у маппинга только выбирает обработчик, заголовок для потокового тела нужно выставить самим
+    static <T> ResponseEntity<StreamingResponseBody> stream(ObjectMapper mapper, Consumer<Consumer<T>> source) {
+        StreamingResponseBody body = out -> source.accept(value -> {
+            try {
+                out.write(mapper.writeValueAsBytes(value));
+                out.write('\n');
+            } catch (IOException ex) {
+                throw new UncheckedIOException(ex);
+            }
+        });
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(MEDIA_TYPE))
+                .body(body);
+    }
+}
@@ -0,0 +1,124 @@
+package ru.yandex.practicum.filmorate.controllers;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.db.ReferenceDataCache;
+
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/*
+ * Готовые JSON-ответы справочников жанров и МРА. Байты сериализуются один раз на версию справочников
+ * и отдаются как есть, без копирования, со строгим ETag по содержимому: на совпавший If-None-Match
+ * Spring сам отвечает 304. Пересборка происходит при первом запросе после ReferenceDataCache.refresh().
+ */
+@Component
+class ReferenceResponseCache {
+    private final ReferenceDataCache referenceData;
+    private final ObjectMapper objectMapper;
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    ReferenceResponseCache(ReferenceDataCache referenceData, ObjectMapper objectMapper) {
+        this.referenceData = referenceData;
+        this.objectMapper = objectMapper;
+    }
+
+    ResponseEntity<byte[]> allGenres() {
+        return current().allGenres.toResponse();
+    }
+
+    // Неизвестный id отдается загрузчику: он кидает ту же ошибку, что и без кэша
+    ResponseEntity<byte[]> genre(int id, Supplier<FilmGenre> loader) {
+        return byId(current().genres, id, loader);
+    }
+
+    ResponseEntity<byte[]> allMPA() {
+        return current().allMPA.toResponse();
+    }
+
+    ResponseEntity<byte[]> mpa(int id, Supplier<MPA> loader) {
+        return byId(current().mpa, id, loader);
+    }
+
+    private ResponseEntity<byte[]> byId(Map<Integer, Json> responses, int id, Supplier<?> loader) {
+        Json json = responses.get(id);
+
+        return json == null ? serialize(loader.get()).toResponse() : json.toResponse();
+    }
+
+    // Версия читается раньше данных, поэтому снимок не может оказаться старее своей версии
+    private Snapshot current() {
+        Snapshot current = snapshot;
+        long version = referenceData.getVersion();
+
+        if (current == null || current.version != version) {
+            current = new Snapshot(version, referenceData.getAllGenres(), referenceData.getAllMPA());
+            snapshot = current;
+        }
+
+        return current;
+    }
+
+    private Json serialize(Object value) {
+        try {
+            return new Json(objectMapper.writeValueAsBytes(value));
+        } catch (JsonProcessingException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private <T> Map<Integer, Json> serializeEach(List<T> values, Function<T, Integer> idOf) {
+        Map<Integer, Json> responses = new HashMap<>();
+
+        for (T value : values) {
+            responses.put(idOf.apply(value), serialize(value));
+        }
+
+        return responses;
+    }
+
+    private class Snapshot {
+        private final long version;
+        private final Json allGenres;
+        private final Map<Integer, Json> genres;
+        private final Json allMPA;
+        private final Map<Integer, Json> mpa;
+
+        private Snapshot(long version, List<FilmGenre> genres, List<MPA> mpa) {
+            this.version = version;
+            this.allGenres = serialize(genres);
+            this.genres = serializeEach(genres, FilmGenre::getId);
+            this.allMPA = serialize(mpa);
+            this.mpa = serializeEach(mpa, MPA::getId);
+        }
+    }
+
+    private static class Json {
+        private final byte[] body;
+        private final String etag;
+
+        private Json(byte[] body) {
+            this.body = body;
+            this.etag = "\"" + DigestUtils.md5DigestAsHex(body) + "\"";
+        }
+
+        private ResponseEntity<byte[]> toResponse() {
+            return ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .eTag(etag)
+                    .body(body);
+        }
+    }
+}
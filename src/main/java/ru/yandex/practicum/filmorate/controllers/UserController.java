@@ -1,13 +1,25 @@
 package ru.yandex.practicum.filmorate.controllers;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
 import java.util.List;
 
 @RestController
@@ -15,11 +27,25 @@ import java.util.List;
 @Slf4j
 @Validated
 public class UserController {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
     final UserService userService;
+    private final FilmService filmService;
+    private final ObjectMapper objectMapper;
+    private final BulkImportService bulkImportService;
+    private final ResourceVersions versions;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService,
+                          FilmService filmService,
+                          ObjectMapper objectMapper,
+                          BulkImportService bulkImportService,
+                          ResourceVersions versions) {
         this.userService = userService;
+        this.filmService = filmService;
+        this.objectMapper = objectMapper;
+        this.bulkImportService = bulkImportService;
+        this.versions = versions;
     }
 
     @PostMapping
@@ -28,6 +54,18 @@ public class UserController {
         return userService.create(user);
     }
 
+    @PostMapping("/bulk")
+    public BulkImportResult createUsers(InputStream ndjson) {
+        log.info("createUsers");
+        return bulkImportService.importUsers(ndjson);
+    }
+
+    @PostMapping("/friends/bulk")
+    public BulkImportResult addFriends(InputStream ndjson) {
+        log.info("addFriends");
+        return bulkImportService.importFriendships(ndjson);
+    }
+
     @PutMapping
     public User updateUser(@Valid @RequestBody User user) {
         log.info("updateUser");
@@ -35,9 +73,22 @@ public class UserController {
     }
 
     @GetMapping
-    public List<User> getUsers() {
+    public List<User> getUsers(@RequestParam(required = false) @PositiveOrZero Integer after,
+                               @RequestParam(required = false) @Positive Integer limit) {
         log.info("getUsers");
-        return userService.getAll();
+
+        // Без параметров отдаем весь список, как и раньше
+        if (after == null && limit == null) {
+            return userService.getAll();
+        }
+
+        return userService.getPage(after == null ? 0 : after, limit == null ? DEFAULT_PAGE_SIZE : limit);
+    }
+
+    @GetMapping(value = "/export", produces = NdjsonStreams.MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportUsers() {
+        log.info("exportUsers");
+        return NdjsonStreams.stream(objectMapper, userService::exportAll);
     }
 
     @PutMapping("/{id}/friends/{friendId}")
@@ -53,8 +104,14 @@ public class UserController {
     }
 
     @GetMapping("/{id}/friends")
-    public List<User> getFriends(@PathVariable int id) {
+    public List<User> getFriends(@PathVariable int id, WebRequest request) {
         log.info("getFriends");
+
+        // В списке лежат сами друзья, поэтому он устаревает и при изменении любого пользователя
+        if (request.checkNotModified(ETags.of("friends", versions.friendsVersion(id), versions.usersVersion()))) {
+            return null;
+        }
+
         return userService.getFriends(id);
     }
 
@@ -64,9 +121,28 @@ public class UserController {
         return userService.getCommonFriends(id, otherId);
     }
 
+    @GetMapping("/{id}/friends/suggestions")
+    public List<User> getFriendSuggestions(@PathVariable int id,
+                                           @RequestParam(defaultValue = "10") @Positive int count) {
+        log.info("getFriendSuggestions");
+        return userService.getFriendSuggestions(id, count);
+    }
+
+    @GetMapping("/{id}/recommendations")
+    public List<Film> getRecommendations(@PathVariable int id,
+                                         @RequestParam(defaultValue = "10") @Positive int count) {
+        log.info("getRecommendations");
+        return filmService.getRecommendations(id, count);
+    }
+
     @GetMapping("/{id}")
-    public User getUser(@PathVariable int id) {
+    public User getUser(@PathVariable int id, WebRequest request) {
         log.info("getUser");
+
+        if (request.checkNotModified(ETags.of("user", versions.userVersion(id)))) {
+            return null;
+        }
+
         return userService.get(id);
     }
 }
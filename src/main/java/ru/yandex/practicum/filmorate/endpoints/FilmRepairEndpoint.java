@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.endpoints;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.db.FilmRepairJob;
+
+import java.util.Map;
+
+// POST /actuator/filmrepair - пересчитать likes_count и genre_mask фильмов
+@Component
+@Endpoint(id = "filmrepair")
+public class FilmRepairEndpoint {
+    private final FilmRepairJob repairJob;
+
+    @Autowired
+    public FilmRepairEndpoint(FilmRepairJob repairJob) {
+        this.repairJob = repairJob;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> repair() {
+        return Map.of("repaired", repairJob.repair());
+    }
+}
@@ -0,0 +1,31 @@
+package ru.yandex.practicum.filmorate.endpoints;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+
+import java.util.Map;
+
+// POST /actuator/filmsearch - перестроить поисковые индексы фильмов по базе
+@Component
+@Endpoint(id = "filmsearch")
+public class FilmSearchEndpoint {
+    private final FilmTextIndex textIndex;
+    private final FilmSearchIndex searchIndex;
+
+    @Autowired
+    public FilmSearchEndpoint(FilmTextIndex textIndex, FilmSearchIndex searchIndex) {
+        this.textIndex = textIndex;
+        this.searchIndex = searchIndex;
+    }
+
+    @WriteOperation
+    public Map<String, Integer> rebuild() {
+        searchIndex.rebuild();
+
+        return Map.of("indexed", textIndex.rebuild());
+    }
+}
@@ -0,0 +1,91 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+class MeteredFilmStorage implements FilmStorage {
+    private final FilmStorage storage;
+    private final StorageTimer timer;
+
+    MeteredFilmStorage(FilmStorage storage, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.timer = new StorageTimer(meterRegistry, storage);
+    }
+
+    @Override
+    public List<Film> getAll() {
+        return timer.record("getAll", storage::getAll);
+    }
+
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        return timer.record("getPage", () -> storage.getPage(afterId, limit));
+    }
+
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        timer.run("exportAll", () -> storage.exportAll(consumer));
+    }
+
+    @Override
+    public Film add(Film film) {
+        return timer.record("add", () -> storage.add(film));
+    }
+
+    @Override
+    public void addAll(List<Film> films) {
+        timer.run("addAll", () -> storage.addAll(films));
+    }
+
+    @Override
+    public Film update(Film film) {
+        return timer.record("update", () -> storage.update(film));
+    }
+
+    @Override
+    public Film get(int id) {
+        return timer.record("get", () -> storage.get(id));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count) {
+        return timer.record("getPopularFilms", () -> storage.getPopularFilms(count));
+    }
+
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return timer.record("getPopularFilms", () -> storage.getPopularFilms(count, genreId, year, mpaId));
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int count) {
+        return timer.record("getRecommendations", () -> storage.getRecommendations(userId, count));
+    }
+
+    @Override
+    public FilmSearchResult search(FilmSearchQuery query) {
+        return timer.record("search", () -> storage.search(query));
+    }
+
+    @Override
+    public void deleteLikeOnFilm(int filmId, int userId) {
+        timer.run("deleteLikeOnFilm", () -> storage.deleteLikeOnFilm(filmId, userId));
+    }
+
+    @Override
+    public void putLikeOnFilm(int filmId, int userId) {
+        timer.run("putLikeOnFilm", () -> storage.putLikeOnFilm(filmId, userId));
+    }
+
+    @Override
+    public int[] putLikes(List<Like> likes) {
+        return timer.record("putLikes", () -> storage.putLikes(likes));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+
+import java.util.List;
+
+class MeteredGenreStorage implements GenreStorage {
+    private final GenreStorage storage;
+    private final StorageTimer timer;
+
+    MeteredGenreStorage(GenreStorage storage, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.timer = new StorageTimer(meterRegistry, storage);
+    }
+
+    @Override
+    public List<FilmGenre> getAllGenre() {
+        return timer.record("getAllGenre", storage::getAllGenre);
+    }
+
+    @Override
+    public FilmGenre getGenreById(long genreId) {
+        return timer.record("getGenreById", () -> storage.getGenreById(genreId));
+    }
+}
@@ -0,0 +1,27 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.MPAStorage;
+
+import java.util.List;
+
+class MeteredMPAStorage implements MPAStorage {
+    private final MPAStorage storage;
+    private final StorageTimer timer;
+
+    MeteredMPAStorage(MPAStorage storage, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.timer = new StorageTimer(meterRegistry, storage);
+    }
+
+    @Override
+    public List<MPA> getAllMPA() {
+        return timer.record("getAllMPA", storage::getAllMPA);
+    }
+
+    @Override
+    public MPA getMPAById(int mpaId) {
+        return timer.record("getMPAById", () -> storage.getMPAById(mpaId));
+    }
+}
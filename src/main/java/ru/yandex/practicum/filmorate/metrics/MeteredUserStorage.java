@@ -0,0 +1,90 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Consumer;
+
+class MeteredUserStorage implements UserStorage {
+    private final UserStorage storage;
+    private final StorageTimer timer;
+
+    MeteredUserStorage(UserStorage storage, MeterRegistry meterRegistry) {
+        this.storage = storage;
+        this.timer = new StorageTimer(meterRegistry, storage);
+    }
+
+    @Override
+    public List<User> getAll() {
+        return timer.record("getAll", storage::getAll);
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return timer.record("getPage", () -> storage.getPage(afterId, limit));
+    }
+
+    @Override
+    public void exportAll(Consumer<User> consumer) {
+        timer.run("exportAll", () -> storage.exportAll(consumer));
+    }
+
+    @Override
+    public User create(User user) {
+        return timer.record("create", () -> storage.create(user));
+    }
+
+    @Override
+    public void createAll(List<User> users) {
+        timer.run("createAll", () -> storage.createAll(users));
+    }
+
+    @Override
+    public User update(User user) {
+        return timer.record("update", () -> storage.update(user));
+    }
+
+    @Override
+    public User get(int id) {
+        return timer.record("get", () -> storage.get(id));
+    }
+
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return timer.record("getByIds", () -> storage.getByIds(ids));
+    }
+
+    @Override
+    public List<User> getFriends(int id) {
+        return timer.record("getFriends", () -> storage.getFriends(id));
+    }
+
+    @Override
+    public void addFriend(int userId, int friendId) {
+        timer.run("addFriend", () -> storage.addFriend(userId, friendId));
+    }
+
+    @Override
+    public int[] addFriends(List<Friendship> friendships) {
+        return timer.record("addFriends", () -> storage.addFriends(friendships));
+    }
+
+    @Override
+    public void deleteFriend(int userId, int friendId) {
+        timer.run("deleteFriend", () -> storage.deleteFriend(userId, friendId));
+    }
+
+    @Override
+    public List<User> getCommonFriends(int userId, int friendId) {
+        return timer.record("getCommonFriends", () -> storage.getCommonFriends(userId, friendId));
+    }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int count) {
+        return timer.record("getFriendSuggestions", () -> storage.getFriendSuggestions(userId, count));
+    }
+}
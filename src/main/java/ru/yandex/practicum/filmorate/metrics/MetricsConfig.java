@@ -0,0 +1,53 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MPAStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.db.DataBaseFilmStorage;
+import ru.yandex.practicum.filmorate.storage.db.DataBaseGenreStorage;
+import ru.yandex.practicum.filmorate.storage.db.DataBaseMPAStorage;
+import ru.yandex.practicum.filmorate.storage.db.DataBaseUserStorage;
+
+/*
+ * Хранилища с таймерами filmorate.storage{storage, method, exception}. Сервисы получают их по интерфейсу,
+ * сами DataBase*Storage остаются обычными бинами и по-прежнему внедряются по классу. Счетчик запросов
+ * к базе переносится в асинхронную часть HTTP-запроса через SqlCountingAsyncInterceptor.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.registerCallableInterceptors(new SqlCountingAsyncInterceptor());
+    }
+
+    @Bean
+    @Primary
+    public FilmStorage meteredFilmStorage(DataBaseFilmStorage storage, MeterRegistry meterRegistry) {
+        return new MeteredFilmStorage(storage, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public UserStorage meteredUserStorage(DataBaseUserStorage storage, MeterRegistry meterRegistry) {
+        return new MeteredUserStorage(storage, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public GenreStorage meteredGenreStorage(DataBaseGenreStorage storage, MeterRegistry meterRegistry) {
+        return new MeteredGenreStorage(storage, meterRegistry);
+    }
+
+    @Bean
+    @Primary
+    public MPAStorage meteredMPAStorage(DataBaseMPAStorage storage, MeterRegistry meterRegistry) {
+        return new MeteredMPAStorage(storage, meterRegistry);
+    }
+}
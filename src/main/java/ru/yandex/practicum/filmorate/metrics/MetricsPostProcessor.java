@@ -0,0 +1,47 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+
+/*
+ * Оборачивает DataSource в прокси datasource-proxy со слушателем SqlMetricsListener. Реестр метрик берется один раз, когда все бины созданы:
+ * постпроцессор создается раньше них и не должен тянуть за собой автоконфигурацию метрик.
+ */
+@Component
+public class MetricsPostProcessor implements BeanPostProcessor, SmartInitializingSingleton {
+    private final ObjectProvider<MeterRegistry> meterRegistryProvider;
+    private final long slowQueryThresholdMs;
+    private volatile MeterRegistry meterRegistry;
+
+    @Autowired
+    public MetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistryProvider,
+                                @Value("${filmorate.metrics.slow-query-threshold-ms:200}") long slowQueryThresholdMs) {
+        this.meterRegistryProvider = meterRegistryProvider;
+        this.slowQueryThresholdMs = slowQueryThresholdMs;
+    }
+
+    @Override
+    public Object postProcessAfterInitialization(Object bean, String beanName) {
+        if (bean instanceof DataSource && !(bean instanceof ProxyDataSource)) {
+            return ProxyDataSourceBuilder.create(beanName, (DataSource) bean)
+                    .listener(new SqlMetricsListener(() -> meterRegistry, slowQueryThresholdMs))
+                    .build();
+        }
+
+        return bean;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        meterRegistry = meterRegistryProvider.getIfAvailable();
+    }
+}
@@ -0,0 +1,25 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Асинхронная часть запроса (StreamingResponseBody) считает запросы к базе в счетчик исходного HTTP-запроса
+class SqlCountingAsyncInterceptor implements CallableProcessingInterceptor {
+    @Override
+    public <T> void preProcess(NativeWebRequest request, Callable<T> task) {
+        Object counter = request.getAttribute(SqlCountingFilter.COUNTER_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+
+        if (counter != null) {
+            SqlRequestCounter.attach((AtomicInteger) counter);
+        }
+    }
+
+    @Override
+    public <T> void postProcess(NativeWebRequest request, Callable<T> task, Object concurrentResult) {
+        SqlRequestCounter.detach();
+    }
+}
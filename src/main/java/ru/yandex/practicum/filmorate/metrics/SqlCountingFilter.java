@@ -0,0 +1,82 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.AsyncEvent;
+import javax.servlet.AsyncListener;
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Сколько запросов к базе понадобилось на один HTTP-запрос: filmorate.http.sql.queries{method, uri}.
+ * uri - шаблон обработчика (/films/{id}), а не конкретный путь. Асинхронный запрос учитывается, когда
+ * он завершен целиком, вместе с запросами из асинхронной части.
+ */
+@Component
+public class SqlCountingFilter extends OncePerRequestFilter {
+    static final String COUNTER_ATTRIBUTE = SqlCountingFilter.class.getName() + ".COUNTER";
+
+    private final MeterRegistry meterRegistry;
+
+    @Autowired
+    public SqlCountingFilter(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        AtomicInteger queries = SqlRequestCounter.start();
+        request.setAttribute(COUNTER_ATTRIBUTE, queries);
+
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            SqlRequestCounter.detach();
+
+            if (isAsyncStarted(request)) {
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        record(request, queries.get());
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                record(request, queries.get());
+            }
+        }
+    }
+
+    private void record(HttpServletRequest request, int queries) {
+        Object pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+
+        DistributionSummary.builder("filmorate.http.sql.queries")
+                .description("Число запросов к базе на один HTTP-запрос")
+                .tag("method", request.getMethod())
+                .tag("uri", pattern == null ? "UNKNOWN" : pattern.toString())
+                .register(meterRegistry)
+                .record(queries);
+    }
+}
@@ -0,0 +1,76 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/*
+ * Слушатель datasource-proxy: каждый запрос к базе учитывается в filmorate.sql{operation},
+ * в счетчике запросов текущего HTTP-запроса (SqlRequestCounter) и, если он выполнялся дольше
+ * порога, пишется в лог медленных запросов.
+ */
+@Slf4j
+class SqlMetricsListener implements QueryExecutionListener {
+    private static final String START = "filmorate.start";
+
+    private final Supplier<MeterRegistry> meterRegistry;
+    private final long slowQueryThresholdNanos;
+
+    SqlMetricsListener(Supplier<MeterRegistry> meterRegistry, long slowQueryThresholdMs) {
+        this.meterRegistry = meterRegistry;
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMs);
+    }
+
+    // Время прокси меряет в миллисекундах, поэтому запросы быстрее миллисекунды засекаются здесь
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        execInfo.addCustomValue(START, System.nanoTime());
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        long nanos = System.nanoTime() - execInfo.getCustomValue(START, Long.class);
+        // У пачки обычного Statement запросов несколько, для тега и лога берется первый
+        String sql = queryInfoList.isEmpty() ? null : queryInfoList.get(0).getQuery();
+
+        SqlRequestCounter.increment();
+
+        MeterRegistry registry = meterRegistry.get();
+
+        if (registry != null) {
+            Timer.builder("filmorate.sql")
+                    .description("Время выполнения запросов к базе")
+                    .tag("operation", operationOf(sql))
+                    .register(registry)
+                    .record(nanos, TimeUnit.NANOSECONDS);
+        }
+
+        if (nanos >= slowQueryThresholdNanos) {
+            log.warn("Медленный запрос ({} мс): {}", TimeUnit.NANOSECONDS.toMillis(nanos), sql);
+        }
+    }
+
+    // Текст запроса в тег не попадает: из-за IN (:ids) число разных строк не ограничено
+    private static String operationOf(String sql) {
+        if (sql == null) {
+            return "other";
+        }
+
+        String trimmed = sql.stripLeading();
+        int end = 0;
+
+        while (end < trimmed.length() && Character.isLetter(trimmed.charAt(end))) {
+            end++;
+        }
+
+        return end == 0 ? "other" : trimmed.substring(0, end).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,37 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Число запросов к базе с начала HTTP-запроса. Счетчик привязан к потоку; потоковые ответы (export)
+ * пишутся в другом потоке, и SqlCountingAsyncInterceptor переносит туда счетчик исходного запроса.
+ */
+final class SqlRequestCounter {
+    private static final ThreadLocal<AtomicInteger> COUNTER = new ThreadLocal<>();
+
+    private SqlRequestCounter() {
+    }
+
+    static AtomicInteger start() {
+        AtomicInteger counter = new AtomicInteger();
+        COUNTER.set(counter);
+
+        return counter;
+    }
+
+    static void attach(AtomicInteger counter) {
+        COUNTER.set(counter);
+    }
+
+    static void detach() {
+        COUNTER.remove();
+    }
+
+    static void increment() {
+        AtomicInteger counter = COUNTER.get();
+
+        if (counter != null) {
+            counter.incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package ru.yandex.practicum.filmorate.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+// Таймер на каждый метод хранилища: filmorate.storage{storage, method, exception}
+class StorageTimer {
+    private final MeterRegistry meterRegistry;
+    private final String storageName;
+
+    StorageTimer(MeterRegistry meterRegistry, Object storage) {
+        this.meterRegistry = meterRegistry;
+        this.storageName = storage.getClass().getSimpleName();
+    }
+
+    <T> T record(String method, Supplier<T> call) {
+        long start = System.nanoTime();
+        String exception = "none";
+
+        try {
+            return call.get();
+        } catch (RuntimeException | Error ex) {
+            exception = ex.getClass().getSimpleName();
+            throw ex;
+        } finally {
+            Timer.builder("filmorate.storage")
+                    .description("Время выполнения методов хранилищ")
+                    .tag("storage", storageName)
+                    .tag("method", method)
+                    .tag("exception", exception)
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    void run(String method, Runnable call) {
+        record(method, () -> {
+            call.run();
+            return null;
+        });
+    }
+}
@@ -4,16 +4,16 @@ import java.time.LocalDate;
 import java.util.Set;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.*;
 
-@Data
+@Value
 @Builder(toBuilder = true)
 @Validated
 public class Film {
-    private int id;
+    private final int id;
     @NotEmpty
     private final String name;
 
@@ -0,0 +1,35 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Set;
+
+@Data
+@Builder(toBuilder = true)
+public class FilmSearchQuery {
+    // Фильм должен иметь все перечисленные жанры
+    private final Set<Integer> genres;
+
+    // Любой из перечисленных МРА
+    private final Set<Integer> mpa;
+
+    private final Integer yearFrom;
+
+    private final Integer yearTo;
+
+    private final String text;
+
+    private final Sort sort;
+
+    private final int offset;
+
+    private final int limit;
+
+    public enum Sort {
+        POPULAR,
+        DATE,
+        // По релевантности текстового запроса; без текста - как POPULAR
+        RELEVANCE
+    }
+}
@@ -0,0 +1,26 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder(toBuilder = true)
+public class FilmSearchResult {
+    // Сколько фильмов подходит под запрос целиком, без учета offset и limit
+    private final int total;
+
+    private final List<Film> films;
+
+    private final List<Facet> genres;
+
+    private final List<Facet> mpa;
+
+    @Data
+    public static class Facet {
+        private final int id;
+        private final String name;
+        private final int count;
+    }
+}
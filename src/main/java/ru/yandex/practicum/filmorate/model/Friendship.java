@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import javax.validation.constraints.Positive;
+
+@Data
+@Builder(toBuilder = true)
+public class Friendship {
+    @Positive
+    private final int userId;
+
+    @Positive
+    private final int friendId;
+}
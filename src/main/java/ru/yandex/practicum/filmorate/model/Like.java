@@ -0,0 +1,16 @@
+package ru.yandex.practicum.filmorate.model;
+
+import lombok.Builder;
+import lombok.Data;
+
+import javax.validation.constraints.Positive;
+
+@Data
+@Builder(toBuilder = true)
+public class Like {
+    @Positive
+    private final int filmId;
+
+    @Positive
+    private final int userId;
+}
@@ -1,11 +1,11 @@
 package ru.yandex.practicum.filmorate.model;
 
 import lombok.Builder;
-import lombok.Data;
+import lombok.Value;
 
-@Data
+@Value
 @Builder(toBuilder = true)
 public class MPA {
-    private int id;
-    private String name;
+    private final int id;
+    private final String name;
 }
\ No newline at end of file
@@ -1,17 +1,17 @@
 package ru.yandex.practicum.filmorate.model;
 
-import lombok.Data;
+import lombok.Value;
 import lombok.Builder;
 import org.springframework.validation.annotation.Validated;
 
 import javax.validation.constraints.*;
 import java.time.LocalDate;
 
-@Data
+@Value
 @Builder(toBuilder = true)
 @Validated
 public class User {
-    private int id;
+    private final int id;
 
     @Email
     @NotNull
@@ -0,0 +1,15 @@
+package ru.yandex.practicum.filmorate.service;
+
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+
+import java.io.InputStream;
+
+public interface BulkImportService {
+    BulkImportResult importFilms(InputStream ndjson);
+
+    BulkImportResult importUsers(InputStream ndjson);
+
+    BulkImportResult importLikes(InputStream ndjson);
+
+    BulkImportResult importFriendships(InputStream ndjson);
+}
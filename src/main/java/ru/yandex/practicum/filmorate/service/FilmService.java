@@ -1,12 +1,19 @@
 package ru.yandex.practicum.filmorate.service;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmService {
     List<Film> getFilms();
 
+    List<Film> getFilmsPage(int afterId, int limit);
+
+    void exportFilms(Consumer<Film> consumer);
+
     Film addFilm(Film film);
 
     Film updateFilm(Film film);
@@ -15,6 +22,13 @@ public interface FilmService {
 
     List<Film> getPopularFilms(int count);
 
+    // Топ внутри жанра, года выпуска и МРА; null - без ограничения
+    List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId);
+
+    List<Film> getRecommendations(int userId, int count);
+
+    FilmSearchResult searchFilms(FilmSearchQuery query);
+
     void deleteLikeOnFilm(Integer filmId, Integer userId);
 
     void putLikeOnFilm(Integer filmId, Integer userId);
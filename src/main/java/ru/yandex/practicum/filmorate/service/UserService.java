@@ -3,10 +3,15 @@ package ru.yandex.practicum.filmorate.service;
 import ru.yandex.practicum.filmorate.model.User;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
+    void exportAll(Consumer<User> consumer);
+
     User create(User user);
 
     User update(User user);
@@ -20,4 +25,6 @@ public interface UserService {
     void deleteFriend(Integer userId, Integer friendId);
 
     List<User> getCommonFriends(Integer userId, Integer otherId);
+
+    List<User> getFriendSuggestions(int userId, int count);
 }
\ No newline at end of file
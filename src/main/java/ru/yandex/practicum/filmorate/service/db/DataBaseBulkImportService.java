@@ -0,0 +1,211 @@
+package ru.yandex.practicum.filmorate.service.db;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import ru.yandex.practicum.filmorate.model.BulkImportResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.Friendship;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.BulkImportService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.GenreStorage;
+import ru.yandex.practicum.filmorate.storage.MPAStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+ * Массовая загрузка из NDJSON. Строки читаются и проверяются по одной, проверенные копятся в пачку
+ * размером chunk-size и пишутся в базу одним батчем. Если батч упал, пачка перезаписывается построчно,
+ * чтобы в отчет попали только действительно плохие строки.
+ */
+@Service
+public class DataBaseBulkImportService implements BulkImportService {
+    private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
+    private final GenreStorage genreStorage;
+    private final MPAStorage mpaStorage;
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int chunkSize;
+
+    @Autowired
+    public DataBaseBulkImportService(FilmStorage filmStorage,
+                                     UserStorage userStorage,
+                                     GenreStorage genreStorage,
+                                     MPAStorage mpaStorage,
+                                     ObjectMapper objectMapper,
+                                     Validator validator,
+                                     @Value("${filmorate.bulk.chunk-size:1000}") int chunkSize) {
+        this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
+        this.genreStorage = genreStorage;
+        this.mpaStorage = mpaStorage;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public BulkImportResult importFilms(InputStream ndjson) {
+        return importRows(ndjson, Film.class, this::checkReferences, films -> {
+            filmStorage.addAll(films);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public BulkImportResult importUsers(InputStream ndjson) {
+        return importRows(ndjson, User.class, user -> {
+        }, users -> {
+            userStorage.createAll(users);
+            return null;
+        }, null);
+    }
+
+    @Override
+    public BulkImportResult importLikes(InputStream ndjson) {
+        return importRows(ndjson, Like.class, like -> {
+        }, filmStorage::putLikes, "Данный пользователь уже поставил лайк этому фильму");
+    }
+
+    @Override
+    public BulkImportResult importFriendships(InputStream ndjson) {
+        return importRows(ndjson, Friendship.class, friendship -> {
+        }, userStorage::addFriends, "Данный пользователь уже добавлен в друзья");
+    }
+
+    private void checkReferences(Film film) {
+        mpaStorage.getMPAById(film.getMpa().getId());
+
+        if (film.getGenres() != null) {
+            for (FilmGenre genre : film.getGenres()) {
+                genreStorage.getGenreById(genre.getId());
+            }
+        }
+    }
+
+    /*
+     * writer возвращает для каждой строки число записанных строк базы; 0 означает дубликат.
+     * null вместо массива - все строки пачки записаны.
+     */
+    private <T> BulkImportResult importRows(InputStream ndjson,
+                                            Class<T> type,
+                                            Consumer<T> check,
+                                            Function<List<T>, int[]> writer,
+                                            String duplicateMessage) {
+        BulkImportResult result = new BulkImportResult();
+        List<T> chunk = new ArrayList<>(chunkSize);
+        List<Long> lines = new ArrayList<>(chunkSize);
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(ndjson, StandardCharsets.UTF_8))) {
+            String row;
+            long lineNumber = 0;
+
+            while ((row = reader.readLine()) != null) {
+                lineNumber++;
+
+                if (row.isBlank()) {
+                    continue;
+                }
+
+                try {
+                    T value = objectMapper.readValue(row, type);
+                    validate(value);
+                    check.accept(value);
+                    chunk.add(value);
+                    lines.add(lineNumber);
+                } catch (JsonProcessingException ex) {
+                    result.addError(lineNumber, "Некорректный JSON: " + ex.getOriginalMessage());
+                } catch (RuntimeException ex) {
+                    result.addError(lineNumber, ex.getMessage());
+                }
+
+                if (chunk.size() == chunkSize) {
+                    writeChunk(chunk, lines, writer, duplicateMessage, result);
+                }
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+
+        writeChunk(chunk, lines, writer, duplicateMessage, result);
+
+        return result;
+    }
+
+    private <T> void writeChunk(List<T> chunk,
+                                List<Long> lines,
+                                Function<List<T>, int[]> writer,
+                                String duplicateMessage,
+                                BulkImportResult result) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+
+        try {
+            collectCounts(writer.apply(chunk), chunk.size(), lines, 0, duplicateMessage, result);
+        } catch (DataAccessException batchException) {
+            for (int i = 0; i < chunk.size(); i++) {
+                try {
+                    collectCounts(writer.apply(List.of(chunk.get(i))), 1, lines, i, duplicateMessage, result);
+                } catch (DataAccessException ex) {
+                    result.addError(lines.get(i), "Строку не удалось сохранить: " + ex.getMostSpecificCause().getMessage());
+                }
+            }
+        }
+
+        chunk.clear();
+        lines.clear();
+    }
+
+    private void collectCounts(int[] counts,
+                               int size,
+                               List<Long> lines,
+                               int offset,
+                               String duplicateMessage,
+                               BulkImportResult result) {
+        if (counts == null) {
+            result.addImported(size);
+            return;
+        }
+
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] == 0) {
+                result.addError(lines.get(offset + i), duplicateMessage);
+            } else {
+                result.addImported(1);
+            }
+        }
+    }
+
+    private <T> void validate(T value) {
+        Set<ConstraintViolation<T>> violations = validator.validate(value);
+
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + ": " + violation.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+}
@@ -3,18 +3,24 @@ package ru.yandex.practicum.filmorate.service.db;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
 import ru.yandex.practicum.filmorate.service.FilmService;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class DataBaseFilmService implements FilmService {
     private final FilmStorage filmStorage;
+    private final UserStorage userStorage;
 
     @Autowired
-    public DataBaseFilmService(FilmStorage filmStorage) {
+    public DataBaseFilmService(FilmStorage filmStorage, UserStorage userStorage) {
         this.filmStorage = filmStorage;
+        this.userStorage = userStorage;
     }
 
     @Override
@@ -22,6 +28,16 @@ public class DataBaseFilmService implements FilmService {
         return filmStorage.getAll();
     }
 
+    @Override
+    public List<Film> getFilmsPage(int afterId, int limit) {
+        return filmStorage.getPage(afterId, limit);
+    }
+
+    @Override
+    public void exportFilms(Consumer<Film> consumer) {
+        filmStorage.exportAll(consumer);
+    }
+
     @Override
     public Film addFilm(Film film) {
         return filmStorage.add(film);
@@ -42,6 +58,24 @@ public class DataBaseFilmService implements FilmService {
         return filmStorage.getPopularFilms(count);
     }
 
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return filmStorage.getPopularFilms(count, genreId, year, mpaId);
+    }
+
+    @Override
+    public List<Film> getRecommendations(int userId, int count) {
+        // Пустые рекомендации не должны скрывать, что пользователя нет
+        userStorage.get(userId);
+
+        return filmStorage.getRecommendations(userId, count);
+    }
+
+    @Override
+    public FilmSearchResult searchFilms(FilmSearchQuery query) {
+        return filmStorage.search(query);
+    }
+
     @Override
     public void deleteLikeOnFilm(Integer filmId, Integer userId) {
         filmStorage.deleteLikeOnFilm(filmId, userId);
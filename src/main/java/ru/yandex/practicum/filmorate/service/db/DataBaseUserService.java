@@ -7,6 +7,7 @@ import ru.yandex.practicum.filmorate.service.UserService;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public class DataBaseUserService implements UserService {
@@ -22,6 +23,16 @@ public class DataBaseUserService implements UserService {
         return storage.getAll();
     }
 
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        return storage.getPage(afterId, limit);
+    }
+
+    @Override
+    public void exportAll(Consumer<User> consumer) {
+        storage.exportAll(consumer);
+    }
+
     @Override
     public User create(User user) {
         return storage.create(user);
@@ -56,4 +67,9 @@ public class DataBaseUserService implements UserService {
     public List<User> getCommonFriends(Integer userId, Integer otherId) {
         return storage.getCommonFriends(userId, otherId);
     }
+
+    @Override
+    public List<User> getFriendSuggestions(int userId, int count) {
+        return storage.getFriendSuggestions(userId, count);
+    }
 }
@@ -1,21 +1,40 @@
 package ru.yandex.practicum.filmorate.storage;
 
 import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
+import ru.yandex.practicum.filmorate.model.Like;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface FilmStorage {
     List<Film> getAll();
 
+    List<Film> getPage(int afterId, int limit);
+
+    void exportAll(Consumer<Film> consumer);
+
     Film add(Film film);
 
+    void addAll(List<Film> films);
+
     Film update(Film film);
 
     Film get(int id);
 
     List<Film> getPopularFilms(int count);
 
+    // Топ внутри жанра, года выпуска и МРА; null - без ограничения
+    List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId);
+
+    List<Film> getRecommendations(int userId, int count);
+
+    FilmSearchResult search(FilmSearchQuery query);
+
     void deleteLikeOnFilm(int filmId, int userId);
 
     void putLikeOnFilm(int filmId, int userId);
+
+    int[] putLikes(List<Like> likes);
 }
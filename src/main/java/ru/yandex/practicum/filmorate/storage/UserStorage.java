@@ -1,23 +1,38 @@
 package ru.yandex.practicum.filmorate.storage;
 
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserStorage {
     List<User> getAll();
 
+    List<User> getPage(int afterId, int limit);
+
+    void exportAll(Consumer<User> consumer);
+
     User create(User user);
 
+    void createAll(List<User> users);
+
     User update(User user);
 
     User get(int id);
 
+    List<User> getByIds(Collection<Integer> ids);
+
     List<User> getFriends(int id);
 
     void addFriend(int userId, int friendId);
 
+    int[] addFriends(List<Friendship> friendships);
+
     void deleteFriend(int userId, int friendId);
 
     List<User> getCommonFriends(int userId, int friendId);
+
+    List<User> getFriendSuggestions(int userId, int count);
 }
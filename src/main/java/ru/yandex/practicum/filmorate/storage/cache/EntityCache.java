@@ -0,0 +1,138 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/*
+ * Read-through кэш сущностей по id с ограничением по размеру и времени жизни.
+ * Загруженное из базы попадает в кэш, только если за время загрузки не было ни одной инвалидации:
+ * иначе чтение, начавшееся до записи, могло бы положить в кэш уже устаревшую версию.
+ * Закэшированные объекты отдаются всем читателям, поэтому Film и User неизменяемые (@Value, жанры -
+ * неизменяемое множество), новая версия собирается через toBuilder().
+ * Выключенный кэш просто передает вызовы загрузчику.
+ */
+public class EntityCache<V> {
+    private final Cache<Integer, V> cache;
+    private final ToIntFunction<V> idOf;
+    private long invalidations;
+
+    public EntityCache(String name,
+                       ToIntFunction<V> idOf,
+                       boolean enabled,
+                       long maximumSize,
+                       long expireAfterWriteMs,
+                       MeterRegistry meterRegistry) {
+        this.idOf = idOf;
+
+        if (enabled) {
+            this.cache = Caffeine.newBuilder()
+                    .maximumSize(maximumSize)
+                    .expireAfterWrite(expireAfterWriteMs, TimeUnit.MILLISECONDS)
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, cache, name);
+        } else {
+            this.cache = null;
+        }
+    }
+
+    public V get(int id, Function<List<Integer>, List<V>> loader) {
+        List<V> values = getAll(List.of(id), loader);
+
+        return values.isEmpty() ? null : values.get(0);
+    }
+
+    // Порядок результата совпадает с порядком ids, то, чего нет ни в кэше, ни в базе, пропускается
+    public List<V> getAll(Collection<Integer> ids, Function<List<Integer>, List<V>> loader) {
+        if (cache == null) {
+            return inOrder(ids, byId(loader.apply(new ArrayList<>(ids))));
+        }
+
+        Map<Integer, V> found = new HashMap<>(cache.getAllPresent(ids));
+        List<Integer> missing = new ArrayList<>();
+
+        for (Integer id : ids) {
+            if (!found.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+
+        if (!missing.isEmpty()) {
+            long version = invalidationsCount();
+            List<V> loaded = loader.apply(missing);
+            found.putAll(byId(loaded));
+            putIfNotInvalidated(loaded, version);
+        }
+
+        return inOrder(ids, found);
+    }
+
+    public synchronized void invalidate(int id) {
+        if (cache != null) {
+            invalidations++;
+            cache.invalidate(id);
+        }
+    }
+
+    public synchronized void invalidateAll(Collection<Integer> ids) {
+        if (cache != null) {
+            invalidations++;
+            cache.invalidateAll(ids);
+        }
+    }
+
+    public synchronized void invalidateAll() {
+        if (cache != null) {
+            invalidations++;
+            cache.invalidateAll();
+        }
+    }
+
+    private Map<Integer, V> byId(List<V> values) {
+        Map<Integer, V> byId = new HashMap<>();
+
+        for (V value : values) {
+            byId.put(idOf.applyAsInt(value), value);
+        }
+
+        return byId;
+    }
+
+    // Загрузчик не обязан сохранять порядок, например IN (...) в SQL его не сохраняет
+    private List<V> inOrder(Collection<Integer> ids, Map<Integer, V> found) {
+        List<V> result = new ArrayList<>(ids.size());
+
+        for (Integer id : ids) {
+            V value = found.get(id);
+
+            if (value != null) {
+                result.add(value);
+            }
+        }
+
+        return result;
+    }
+
+    private synchronized long invalidationsCount() {
+        return invalidations;
+    }
+
+    private synchronized void putIfNotInvalidated(List<V> values, long version) {
+        if (invalidations == version) {
+            for (V value : values) {
+                cache.put(idOf.applyAsInt(value), value);
+            }
+        }
+    }
+}
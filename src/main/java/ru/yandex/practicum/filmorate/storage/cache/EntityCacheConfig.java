@@ -0,0 +1,28 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.User;
+
+// Метрики кэшей: cache.gets{cache, result}, cache.evictions{cache}, cache.size{cache}
+@Configuration
+public class EntityCacheConfig {
+    @Bean
+    public EntityCache<Film> filmCache(MeterRegistry meterRegistry,
+                                       @Value("${filmorate.cache.enabled:true}") boolean enabled,
+                                       @Value("${filmorate.cache.films.maximum-size:10000}") long maximumSize,
+                                       @Value("${filmorate.cache.films.expire-after-write-ms:600000}") long expireMs) {
+        return new EntityCache<>("films", Film::getId, enabled, maximumSize, expireMs, meterRegistry);
+    }
+
+    @Bean
+    public EntityCache<User> userCache(MeterRegistry meterRegistry,
+                                       @Value("${filmorate.cache.enabled:true}") boolean enabled,
+                                       @Value("${filmorate.cache.users.maximum-size:10000}") long maximumSize,
+                                       @Value("${filmorate.cache.users.expire-after-write-ms:600000}") long expireMs) {
+        return new EntityCache<>("users", User::getId, enabled, maximumSize, expireMs, meterRegistry);
+    }
+}
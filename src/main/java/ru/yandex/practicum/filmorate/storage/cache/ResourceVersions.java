@@ -0,0 +1,137 @@
+package ru.yandex.practicum.filmorate.storage.cache;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Версии ресурсов для условных GET-запросов. Хранилища отмечают каждую запись, контроллеры строят из версий ETag
+ * и отвечают 304, не обращаясь ни к базе, ни к сериализатору.
+ * Версия - значение общих часов в момент последней записи. Часы стартуют с текущего времени в микросекундах,
+ * поэтому после перезапуска версии не повторяют выданные раньше. Отмечать запись нужно после коммита
+ * и инвалидации кэша: тогда клиент с новой версией никогда не получит старые данные.
+ */
+@Component
+public class ResourceVersions {
+    private final AtomicLong clock = new AtomicLong(System.currentTimeMillis() * 1000);
+    private final Versions films;
+    private final Versions users;
+    // Списки друзей по id пользователя
+    private final Versions friends;
+
+    public ResourceVersions(@Value("${filmorate.versions.max-entries:100000}") int maxEntries) {
+        this.films = new Versions(maxEntries);
+        this.users = new Versions(maxEntries);
+        this.friends = new Versions(maxEntries);
+    }
+
+    public void touchFilm(int id) {
+        films.touch(id);
+    }
+
+    public void touchFilms(Collection<Integer> ids) {
+        films.touch(ids);
+    }
+
+    public void touchAllFilms() {
+        films.touchAll();
+    }
+
+    public long filmVersion(int id) {
+        return films.version(id);
+    }
+
+    // Меняется при любой записи в фильмы: по ней проверяются списки вроде популярных
+    public long filmsVersion() {
+        return films.latest();
+    }
+
+    public void touchUser(int id) {
+        users.touch(id);
+    }
+
+    public void touchAllUsers() {
+        users.touchAll();
+    }
+
+    public long userVersion(int id) {
+        return users.version(id);
+    }
+
+    public long usersVersion() {
+        return users.latest();
+    }
+
+    public void touchFriends(int userId) {
+        friends.touch(userId);
+    }
+
+    public void touchFriends(Collection<Integer> userIds) {
+        friends.touch(userIds);
+    }
+
+    public long friendsVersion(int userId) {
+        return friends.version(userId);
+    }
+
+    /*
+     * Версии отдельных id плюс нижняя граница для всех остальных. Массовые записи и переполнение
+     * поднимают границу и очищают карту, так что ее размер ограничен maxEntries.
+     */
+    private class Versions {
+        private final ConcurrentMap<Integer, Long> stamps = new ConcurrentHashMap<>();
+        private final AtomicLong latest = new AtomicLong(clock.get());
+        private final int maxEntries;
+        private volatile long floor = clock.get();
+
+        Versions(int maxEntries) {
+            this.maxEntries = maxEntries;
+        }
+
+        void touch(int id) {
+            if (stamps.size() >= maxEntries) {
+                touchAll();
+                return;
+            }
+
+            long stamp = clock.incrementAndGet();
+            stamps.merge(id, stamp, Math::max);
+            latest.accumulateAndGet(stamp, Math::max);
+        }
+
+        void touch(Collection<Integer> ids) {
+            if (stamps.size() + ids.size() > maxEntries) {
+                touchAll();
+                return;
+            }
+
+            long stamp = clock.incrementAndGet();
+
+            for (Integer id : ids) {
+                stamps.merge(id, stamp, Math::max);
+            }
+
+            latest.accumulateAndGet(stamp, Math::max);
+        }
+
+        // Граница поднимается до очистки: id, которого уже нет в карте, сразу получает новую версию
+        synchronized void touchAll() {
+            long stamp = clock.incrementAndGet();
+            floor = stamp;
+            stamps.clear();
+            latest.accumulateAndGet(stamp, Math::max);
+        }
+
+        long version(int id) {
+            return Math.max(stamps.getOrDefault(id, 0L), floor);
+        }
+
+        long latest() {
+            return latest.get();
+        }
+    }
+}
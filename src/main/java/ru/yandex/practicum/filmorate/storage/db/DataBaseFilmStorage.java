@@ -1,108 +1,234 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.yandex.practicum.filmorate.model.Film;
 import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
+import ru.yandex.practicum.filmorate.model.Like;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmTextIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
 import ru.yandex.practicum.filmorate.validationExceptions.FilmNotFoundException;
 import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
 
+import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 @Component
 public class DataBaseFilmStorage implements FilmStorage {
-    private final JdbcTemplate jdbcTemplate;
+    private static final int EXPORT_FETCH_SIZE = 500;
 
-    // Используется как буффер, для простоты
-    private final Map<Integer, Set<FilmGenre>> filmsGenre;
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeIndex likeIndex;
+    private final FilmSearchIndex searchIndex;
+    private final FilmTextIndex textIndex;
+    private final ReferenceDataCache referenceData;
+    private final EntityCache<Film> filmCache;
+    private final ResourceVersions versions;
+    private final JdbcTemplate exportJdbcTemplate;
+    // Метаданные таблицы читаются один раз при первой вставке, дальше insert переиспользуется
+    private final SimpleJdbcInsert filmInsert;
 
     @Autowired
-    public DataBaseFilmStorage(JdbcTemplate jdbcTemplate) {
+    public DataBaseFilmStorage(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               LikeWriteBuffer likeWriteBuffer,
+                               FilmPopularityIndex popularityIndex,
+                               LikeIndex likeIndex,
+                               FilmSearchIndex searchIndex,
+                               FilmTextIndex textIndex,
+                               ReferenceDataCache referenceData,
+                               EntityCache<Film> filmCache,
+                               ResourceVersions versions) {
         this.jdbcTemplate = jdbcTemplate;
-        filmsGenre = new HashMap<>();
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.transactionTemplate = transactionTemplate;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.popularityIndex = popularityIndex;
+        this.likeIndex = likeIndex;
+        this.searchIndex = searchIndex;
+        this.textIndex = textIndex;
+        this.referenceData = referenceData;
+        this.filmCache = filmCache;
+        this.versions = versions;
+        this.exportJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.filmInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("films")
+                .usingGeneratedKeyColumns("film_id");
     }
 
     @Override
     public List<Film> getAll() {
-        String sql = "SELECT f.*, mpa.title FROM films AS f JOIN mpa ON f.mpa_id=mpa.mpa_id";
-        String sqlAllGenres =
-                "SELECT g.*, fg.film_id FROM genre AS g JOIN films_genre AS fg ON g.genre_id = fg.genre_id ";
-
-        jdbcTemplate.query(sqlAllGenres, this::fillFilmsGenre);
-        List<Film> films = jdbcTemplate.query(sql, this::buildFilm);
-        filmsGenre.clear();
+        List<Film> films = new ArrayList<>();
+        streamAll(jdbcTemplate, films::add);
 
         return films;
     }
 
+    @Override
+    public List<Film> getPage(int afterId, int limit) {
+        String sqlQuery = "SELECT film_id FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?";
+
+        return filmCache.getAll(jdbcTemplate.queryForList(sqlQuery, Integer.class, afterId, limit), this::loadFilms);
+    }
+
+    // Фильмы отдаются потребителю прямо из курсора, весь список целиком не собирается
+    @Override
+    public void exportAll(Consumer<Film> consumer) {
+        streamAll(exportJdbcTemplate, consumer);
+    }
+
     @Override
     public Film add(Film film) {
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("films")
-                .usingGeneratedKeyColumns("film_id");
+        int id = Objects.requireNonNull(transactionTemplate.execute(status -> {
+            int filmId = filmInsert.executeAndReturnKey(filmToMap(film)).intValue();
+
+            if (film.getGenres() != null) {
+                syncFilmGenres(filmId, Set.of(), genreIds(film));
+            }
 
-        int id = simpleJdbcInsert.executeAndReturnKey(filmToMap(film)).intValue();
+            return filmId;
+        }));
+
+        Film added = loadFilm(id);
+        popularityIndex.put(id, added);
+        searchIndex.put(id, added);
+        textIndex.put(id, added.getName(), added.getDescription());
+        versions.touchFilm(id);
+
+        return added;
+    }
 
-        if (film.getGenres() != null) {
-            addFilmGenres(film, id);
+    @Override
+    public void addAll(List<Film> films) {
+        String sqlQuery = "INSERT INTO films (name, description, rate, release_date, duration, mpa_id, genre_mask) " +
+                "VALUES (?, ?, ?, ?, ?, ?, ?)";
+
+        List<Integer> ids = transactionTemplate.execute(status -> {
+            List<Integer> filmIds = jdbcTemplate.execute(
+                    connection -> connection.prepareStatement(sqlQuery, new String[]{"film_id"}),
+                    (PreparedStatement ps) -> {
+                        for (Film film : films) {
+                            ps.setString(1, film.getName());
+                            ps.setString(2, film.getDescription());
+                            ps.setObject(3, film.getRate());
+                            ps.setObject(4, film.getReleaseDate());
+                            ps.setInt(5, film.getDuration());
+                            ps.setInt(6, film.getMpa().getId());
+                            ps.setLong(7, film.getGenres() == null ? 0 : genreMask(genreIds(film)));
+                            ps.addBatch();
+                        }
+
+                        ps.executeBatch();
+
+                        List<Integer> keys = new ArrayList<>(films.size());
+
+                        try (ResultSet rs = ps.getGeneratedKeys()) {
+                            while (rs.next()) {
+                                keys.add(rs.getInt(1));
+                            }
+                        }
+
+                        return keys;
+                    });
+
+            List<Object[]> genres = new ArrayList<>();
+
+            for (int i = 0; i < films.size(); i++) {
+                if (films.get(i).getGenres() != null) {
+                    for (Integer genreId : genreIds(films.get(i))) {
+                        genres.add(new Object[]{filmIds.get(i), genreId});
+                    }
+                }
+            }
+
+            jdbcTemplate.batchUpdate("INSERT INTO films_genre (film_id, genre_id) VALUES (?, ?)", genres);
+
+            return filmIds;
+        });
+
+        for (int i = 0; i < films.size(); i++) {
+            popularityIndex.put(ids.get(i), films.get(i));
+            searchIndex.put(ids.get(i), films.get(i));
+            textIndex.put(ids.get(i), films.get(i).getName(), films.get(i).getDescription());
         }
 
-        return get(id);
+        versions.touchFilms(ids);
     }
 
     @Override
     public Film update(Film film) {
-        validationFilm(film.getId());
-
-        String sqlQuery = "UPDATE films SET name = ?, rate = ?, description = ?,  duration = ?, release_date = ?, " +
-                "mpa_id = ? WHERE film_id = ?";
-        jdbcTemplate.update(sqlQuery,
-                film.getName(),
-                film.getRate(),
-                film.getDescription(),
-                film.getDuration(),
-                film.getReleaseDate(),
-                film.getMpa().getId(),
-                film.getId());
-
-        return get(film.getId());
+        // Прежний rate возвращает сам UPDATE (OLD TABLE в H2): лайки меняют rate той же строки
+        // и не могут вклиниться между его чтением и записью
+        String sqlQuery = "SELECT rate FROM OLD TABLE (UPDATE films SET name = ?, rate = ?, description = ?, " +
+                "duration = ?, release_date = ?, mpa_id = ?, genre_mask = COALESCE(?, genre_mask) WHERE film_id = ?)";
+        String sqlGenres = "SELECT genre_id FROM films_genre WHERE film_id = ?";
+
+        int rateDelta = Objects.requireNonNull(transactionTemplate.execute(status -> {
+            // Если жанры не передали, оставляем их как есть
+            Set<Integer> requested = film.getGenres() == null ? null : genreIds(film);
+            List<Integer> storedRate = jdbcTemplate.queryForList(sqlQuery, Integer.class,
+                    film.getName(),
+                    film.getRate(),
+                    film.getDescription(),
+                    film.getDuration(),
+                    film.getReleaseDate(),
+                    film.getMpa().getId(),
+                    requested == null ? null : genreMask(requested),
+                    film.getId());
+
+            if (storedRate.isEmpty()) {
+                throw new FilmNotFoundException("Фильм с таким id не найден");
+            }
+
+            if (requested != null) {
+                Set<Integer> stored = new HashSet<>(jdbcTemplate.queryForList(sqlGenres, Integer.class, film.getId()));
+                syncFilmGenres(film.getId(), stored, requested);
+            }
+
+            return rateOf(film.getRate()) - rateOf(storedRate.get(0));
+        }));
+
+        filmCache.invalidate(film.getId());
+        Film updated = loadFilm(film.getId());
+        popularityIndex.update(updated.getId(), updated, rateDelta);
+        searchIndex.put(updated.getId(), updated);
+        textIndex.put(updated.getId(), updated.getName(), updated.getDescription());
+        versions.touchFilm(updated.getId());
+
+        return updated;
     }
 
     @Override
     public Film get(int id) {
-        validationFilm(id);
-
-        String sqlFilm = "SELECT * FROM films WHERE film_id = ?";
-        String sqlGenre = "SELECT genre_id FROM films_genre WHERE film_id = ?";
-
-        List<FilmGenre> genresFilm =
-                jdbcTemplate.query(sqlGenre, (rs, rowNum) -> getGenre(rs.getInt("genre_id")), id);
-        SqlRowSet sqlQuery = jdbcTemplate.queryForRowSet(sqlFilm, id);
-
-        Film film = null;
-
-        //так хотят тесты, не я
-        Set<FilmGenre> sortedGenres = new TreeSet<>(Comparator.comparingInt(FilmGenre::getId));
-        sortedGenres.addAll(genresFilm);
-
-        if (sqlQuery.next()) {
-            film = Film.builder()
-                    .id(id)
-                    .name(sqlQuery.getString("name"))
-                    .rate(sqlQuery.getInt("rate"))
-                    .description(sqlQuery.getString("description"))
-                    .duration(sqlQuery.getInt("duration"))
-                    .releaseDate(Objects.requireNonNull(sqlQuery.getDate("release_date")).toLocalDate())
-                    .mpa(getMPA(sqlQuery.getInt("mpa_id")))
-                    .genres(sortedGenres)
-                    .build();
+        Film film = filmCache.get(id, this::loadFilms);
+
+        if (film == null) {
+            throw new FilmNotFoundException("Фильм с таким id не найден");
         }
 
         return film;
@@ -110,66 +236,163 @@ public class DataBaseFilmStorage implements FilmStorage {
 
     @Override
     public List<Film> getPopularFilms(int count) {
-        String sqlQuery = "SELECT * FROM films ORDER BY rate DESC LIMIT ?;";
+        return filmCache.getAll(popularityIndex.getTop(count), this::loadFilms);
+    }
 
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> get(rs.getInt("film_id")),
-                count);
+    @Override
+    public List<Film> getPopularFilms(int count, Integer genreId, Integer year, Integer mpaId) {
+        return filmCache.getAll(popularityIndex.getTop(count, genreId, year, mpaId), this::loadFilms);
     }
 
     @Override
-    public void deleteLikeOnFilm(int filmId, int userId) {
-        if (!isUserLiked(filmId, userId)) {
-            throw new UserNotFoundException("Такой пользователь не лайкал фильм");
+    public List<Film> getRecommendations(int userId, int count) {
+        return filmCache.getAll(likeIndex.recommend(userId, count), this::loadFilms);
+    }
+
+    // Фильтры и фасеты считаются в памяти, из базы (или кэша) читается только страница результата
+    @Override
+    public FilmSearchResult search(FilmSearchQuery query) {
+        FilmSearchIndex.Hits hits = searchIndex.search(query);
+        List<FilmSearchResult.Facet> genres = new ArrayList<>();
+        List<FilmSearchResult.Facet> mpa = new ArrayList<>();
+
+        for (FilmGenre genre : referenceData.getAllGenres()) {
+            genres.add(new FilmSearchResult.Facet(genre.getId(), genre.getName(), hits.getGenreCount(genre.getId())));
         }
 
-        String sqlUserLike = "DELETE FROM users_like WHERE film_id = ? AND user_id = ?";
-        String sqlRate = "UPDATE films SET rate = ? WHERE film_id = ?";
-        Film film = get(filmId);
+        for (MPA rating : referenceData.getAllMPA()) {
+            mpa.add(new FilmSearchResult.Facet(rating.getId(), rating.getName(), hits.getMpaCount(rating.getId())));
+        }
+
+        return FilmSearchResult.builder()
+                .total(hits.getTotal())
+                .films(filmCache.getAll(hits.getPage(), this::loadFilms))
+                .genres(genres)
+                .mpa(mpa)
+                .build();
+    }
+
+    @Override
+    public void deleteLikeOnFilm(int filmId, int userId) {
+        // Отложенный дизлайк буфер сам отражает в индексах и кэше
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.unlike(filmId, userId);
+            return;
+        }
 
-        jdbcTemplate.update(sqlUserLike, filmId, userId);
-        jdbcTemplate.update(sqlRate, (film.getRate() - 1), filmId);
+        likeWriteBuffer.runLocked(filmId, () -> {
+            deleteLike(filmId, userId);
+            filmCache.invalidate(filmId);
+            popularityIndex.changeRate(filmId, -1);
+            likeIndex.unlike(filmId, userId);
+            versions.touchFilm(filmId);
+        });
     }
 
     @Override
     public void putLikeOnFilm(int filmId, int userId) {
-        if (isUserLiked(filmId, userId)) {
-            throw new IllegalArgumentException("Данный пользователь уже поставил лайк этому фильму");
+        if (likeWriteBuffer.isEnabled()) {
+            likeWriteBuffer.like(filmId, userId);
+            return;
         }
 
-        String sqlUserLike = "MERGE INTO users_like (film_id, user_id) VALUES (?, ?)";
-        String sqlRate = "UPDATE films SET rate = ? WHERE film_id = ?";
-        Film film = get(filmId);
+        // Ремонт фильмов не должен пересобрать индекс между записью лайка в базу и в индекс
+        likeWriteBuffer.runLocked(filmId, () -> {
+            putLike(filmId, userId);
+            filmCache.invalidate(filmId);
+            popularityIndex.changeRate(filmId, 1);
+            likeIndex.like(filmId, userId);
+            versions.touchFilm(filmId);
+        });
+    }
+
+    @Override
+    public int[] putLikes(List<Like> likes) {
+        String sqlUserLike = "INSERT INTO users_like (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM users_like WHERE film_id = ? AND user_id = ?)";
+        String sqlRate = "UPDATE films SET rate = COALESCE(rate, 0) + ?, likes_count = likes_count + ? WHERE film_id = ?";
+
+        Map<Integer, Integer> rateDeltas = new HashMap<>();
+
+        Supplier<int[]> write = () -> {
+            int[] counts = transactionTemplate.execute(status -> {
+                List<Object[]> args = new ArrayList<>(likes.size());
+
+                for (Like like : likes) {
+                    args.add(new Object[]{like.getFilmId(), like.getUserId(), like.getFilmId(), like.getUserId()});
+                }
+
+                int[] inserted = jdbcTemplate.batchUpdate(sqlUserLike, args);
+
+                for (int i = 0; i < inserted.length; i++) {
+                    if (inserted[i] != 0) {
+                        rateDeltas.merge(likes.get(i).getFilmId(), 1, Integer::sum);
+                    }
+                }
+
+                List<Object[]> rates = new ArrayList<>(rateDeltas.size());
+                rateDeltas.forEach((filmId, delta) -> rates.add(new Object[]{delta, delta, filmId}));
+                jdbcTemplate.batchUpdate(sqlRate, rates);
+
+                return inserted;
+            });
+
+            filmCache.invalidateAll(rateDeltas.keySet());
+            rateDeltas.forEach(popularityIndex::changeRate);
 
-        jdbcTemplate.update(sqlUserLike, filmId, userId);
-        jdbcTemplate.update(sqlRate, (film.getRate() + 1), filmId);
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] != 0) {
+                    likeIndex.like(likes.get(i).getFilmId(), likes.get(i).getUserId());
+                }
+            }
+
+            versions.touchFilms(rateDeltas.keySet());
+
+            return counts;
+        };
+
+        // Отложенные лайки должны попасть в базу раньше, иначе проверка на дубликаты их не увидит; новые до конца
+        // записи и правки индексов не начнутся
+        return likeWriteBuffer.flushAndRun(write);
     }
 
-    private MPA getMPA(int id) {
-        String sqlQuery = "SELECT * FROM mpa WHERE mpa_id = ?";
-        SqlRowSet mpaRow = jdbcTemplate.queryForRowSet(sqlQuery, id);
-
-        if (mpaRow.next()) {
-            return MPA.builder()
-                    .id(mpaRow.getInt("mpa_id"))
-                    .name(mpaRow.getString("title"))
-                    .build();
-        } else {
-            throw new NoSuchElementException("МРА с таким id не существует");
-        }
+    private void deleteLike(int filmId, int userId) {
+        String sqlUserLike = "DELETE FROM users_like WHERE film_id = ? AND user_id = ?";
+        String sqlRate = "UPDATE films SET rate = COALESCE(rate, 0) - 1, likes_count = likes_count - 1 WHERE film_id = ?";
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (jdbcTemplate.update(sqlUserLike, filmId, userId) == 0) {
+                throw new UserNotFoundException("Такой пользователь не лайкал фильм");
+            }
+
+            jdbcTemplate.update(sqlRate, filmId);
+        });
     }
 
-    private FilmGenre getGenre(int id) {
-        String sqlQuery = "SELECT * FROM genre WHERE genre_id = ?";
-        SqlRowSet genreRow = jdbcTemplate.queryForRowSet(sqlQuery, id);
-
-        if (genreRow.next()) {
-            return FilmGenre.builder()
-                    .id(genreRow.getInt("genre_id"))
-                    .name(genreRow.getString("name"))
-                    .build();
-        } else {
-            throw new NoSuchElementException("Жанра под таким идентификатором не существует");
-        }
+    private void putLike(int filmId, int userId) {
+        String sqlUserLike = "INSERT INTO users_like (film_id, user_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM users_like WHERE film_id = ? AND user_id = ?)";
+        String sqlRate = "UPDATE films SET rate = COALESCE(rate, 0) + 1, likes_count = likes_count + 1 WHERE film_id = ?";
+
+        // Лайк и изменение рейтинга в одной транзакции: решает число вставленных строк, а не предварительная проверка
+        transactionTemplate.executeWithoutResult(status -> {
+            int inserted;
+
+            try {
+                inserted = jdbcTemplate.update(sqlUserLike, filmId, userId, filmId, userId);
+            } catch (DuplicateKeyException ex) {
+                // Параллельный запрос успел вставить такой же лайк между проверкой и вставкой
+                inserted = 0;
+            } catch (DataIntegrityViolationException ex) {
+                throw likeTargetNotFound(filmId);
+            }
+
+            if (inserted == 0) {
+                throw new IllegalArgumentException("Данный пользователь уже поставил лайк этому фильму");
+            }
+
+            jdbcTemplate.update(sqlRate, filmId);
+        });
     }
 
     private Map<String, Object> filmToMap(Film film) {
@@ -181,76 +404,157 @@ public class DataBaseFilmStorage implements FilmStorage {
         mapFilm.put("release_date", film.getReleaseDate());
         mapFilm.put("duration", film.getDuration());
         mapFilm.put("mpa_id", film.getMpa().getId());
+        mapFilm.put("likes_count", 0);
+        mapFilm.put("genre_mask", film.getGenres() == null ? 0 : genreMask(genreIds(film)));
 
         return mapFilm;
     }
 
-    private boolean isUserLiked(Integer filmId, Integer userId) {
-        String sqlQuery = "SELECT * FROM users_like WHERE film_id =? AND user_id = ?";
-        SqlRowSet userLike = jdbcTemplate.queryForRowSet(sqlQuery, filmId, userId);
+    // Вызывается, только если вставка лайка нарушила внешний ключ, поэтому лишний запрос тут не страшен
+    private RuntimeException likeTargetNotFound(int filmId) {
+        String sqlQuery = "SELECT COUNT(*) FROM films WHERE film_id = ?";
+        Integer films = jdbcTemplate.queryForObject(sqlQuery, Integer.class, filmId);
+
+        if (films == null || films == 0) {
+            return new FilmNotFoundException("Фильм с таким id не найден");
+        }
 
-        return userLike.next();
+        return new UserNotFoundException();
     }
 
-    private void validationFilm(int filmId) {
-        String sqlQuery = "SELECT * FROM films WHERE film_id = ?";
-        SqlRowSet film = jdbcTemplate.queryForRowSet(sqlQuery, filmId);
+    // Пишем в films_genre только разницу между сохраненными и новыми жанрами, каждым видом изменений - одним батчем
+    private void syncFilmGenres(int filmId, Set<Integer> stored, Set<Integer> requested) {
+        List<Object[]> toAdd = new ArrayList<>();
+        List<Object[]> toDelete = new ArrayList<>();
 
-        if (!film.next()) {
-            throw new FilmNotFoundException("Фильм с таким id не найден");
+        for (Integer genreId : requested) {
+            if (!stored.contains(genreId)) {
+                toAdd.add(new Object[]{filmId, genreId});
+            }
+        }
+
+        for (Integer genreId : stored) {
+            if (!requested.contains(genreId)) {
+                toDelete.add(new Object[]{filmId, genreId});
+            }
+        }
+
+        if (!toDelete.isEmpty()) {
+            jdbcTemplate.batchUpdate("DELETE FROM films_genre WHERE film_id = ? AND genre_id = ?", toDelete);
+        }
+
+        if (!toAdd.isEmpty()) {
+            jdbcTemplate.batchUpdate("INSERT INTO films_genre (film_id, genre_id) VALUES (?, ?)", toAdd);
+        }
+    }
+
+    private Set<Integer> genreIds(Film film) {
+        Set<Integer> ids = new HashSet<>();
+
+        for (FilmGenre genre : film.getGenres()) {
+            ids.add(genre.getId());
         }
+
+        return ids;
     }
 
-    private void addFilmGenres(Film film, int filmId) {
-        Set<FilmGenre> filmGenres = new HashSet<>(film.getGenres());
+    private static long genreMask(Set<Integer> genreIds) {
+        long mask = 0;
 
-        for (FilmGenre genre : filmGenres) {
-            String sqlFilmGenres = "MERGE INTO films_genre (film_id, genre_id) VALUES (?, ?)";
-            jdbcTemplate.update(sqlFilmGenres, filmId, genre.getId());
+        for (Integer genreId : genreIds) {
+            mask |= 1L << (genreId - 1);
         }
+
+        return mask;
     }
 
-    private Film buildFilm(ResultSet rs, int num) throws SQLException {
-        Film film;
+    // rate = NULL считается нулем, как и в запросах лайков
+    private static int rateOf(Integer rate) {
+        return rate == null ? 0 : rate;
+    }
 
-        int filmId = rs.getInt("film_id");
-        Set<FilmGenre> genresFilm;
+    // Набор неизменяемый: фильм может лежать в кэше и отдаваться нескольким запросам сразу
+    private Set<FilmGenre> genresOf(long mask) {
+        Set<FilmGenre> genres = new TreeSet<>(Comparator.comparingInt(FilmGenre::getId));
 
-        if (filmsGenre.get(filmId) == null) {
-            genresFilm = new HashSet<>();
-        } else {
-            genresFilm = filmsGenre.get(filmId);
+        while (mask != 0) {
+            genres.add(referenceData.getGenre(Long.numberOfTrailingZeros(mask) + 1));
+            mask &= mask - 1;
         }
 
-        film = Film.builder()
-                .id(filmId)
+        return Collections.unmodifiableSet(genres);
+    }
+
+    // Запись читает фильм мимо кэша: в кэш попадает только то, что запрашивали на чтение
+    private Film loadFilm(int id) {
+        List<Film> films = loadFilms(List.of(id));
+
+        if (films.isEmpty()) {
+            throw new FilmNotFoundException("Фильм с таким id не найден");
+        }
+
+        return films.get(0);
+    }
+
+    /*
+     * Загружает фильмы одним запросом, сколько бы id ни передали: жанры лежат в строке фильма битовой маской,
+     * названия жанров и МРА берутся из справочников в памяти.
+     * Порядок результата совпадает с порядком ids, несуществующие id пропускаются.
+     */
+    private List<Film> loadFilms(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String sqlFilms = "SELECT * FROM films WHERE film_id IN (:ids)";
+
+        Map<Integer, Film> films = new HashMap<>();
+        long flushes = likeWriteBuffer.flushes();
+        namedJdbcTemplate.query(sqlFilms, new MapSqlParameterSource("ids", ids), rs -> {
+            Film film = makeFilm(rs, flushes);
+            films.put(film.getId(), film);
+        });
+
+        List<Film> result = new ArrayList<>(films.size());
+
+        for (Integer id : ids) {
+            Film film = films.get(id);
+
+            if (film != null) {
+                result.add(film);
+            }
+        }
+
+        return result;
+    }
+
+    // flushes - число сбросов буфера лайков до запроса, в котором прочитана строка
+    private Film makeFilm(ResultSet rs, long flushes) throws SQLException {
+        int id = rs.getInt("film_id");
+
+        return Film.builder()
+                .id(id)
                 .name(rs.getString("name"))
-                .rate(rs.getInt("rate"))
+                .rate(likeWriteBuffer.rateWithPending(id, rs.getInt("rate"), flushes, () -> storedRate(id)))
                 .description(rs.getString("description"))
                 .duration(rs.getInt("duration"))
                 .releaseDate(Objects.requireNonNull(rs.getDate("release_date")).toLocalDate())
-                .mpa(MPA.builder().id(rs.getInt("mpa_id")).name(rs.getString("title")).build())
-                .genres(new HashSet<>(genresFilm))
+                .mpa(referenceData.getMPA(rs.getInt("mpa_id")))
+                .genres(genresOf(rs.getLong("genre_mask")))
                 .build();
-
-        return film;
     }
 
-    // Лямбда хочет непременно что-то возвращать, давайте закроем глаза?
-    private Integer fillFilmsGenre(ResultSet rs, int num) throws SQLException {
-        FilmGenre genre =
-                FilmGenre.builder().id(rs.getInt("genre_id")).name(rs.getString("name")).build();
+    // Фильмы отдаются потребителю по мере чтения строк, весь результат в памяти не собирается
+    private void streamAll(JdbcTemplate template, Consumer<Film> consumer) {
+        String sqlQuery = "SELECT * FROM films ORDER BY film_id";
 
-        int filmId = rs.getInt("film_id");
+        long flushes = likeWriteBuffer.flushes();
+        template.query(sqlQuery, (RowCallbackHandler) rs -> consumer.accept(makeFilm(rs, flushes)));
+    }
 
-        if (filmsGenre.get(filmId) == null) {
-            filmsGenre.put(filmId, new HashSet<>(Set.of(genre)));
-        } else {
-            Set<FilmGenre> genres = filmsGenre.get(filmId);
-            genres.add(genre);
-            filmsGenre.put(filmId, genres);
-        }
+    private int storedRate(int filmId) {
+        String sqlQuery = "SELECT COALESCE(rate, 0) FROM films WHERE film_id = ?";
 
-        return 1;
+        return Objects.requireNonNull(jdbcTemplate.queryForObject(sqlQuery, Integer.class, filmId));
     }
 }
@@ -1,52 +1,28 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.FilmGenre;
 import ru.yandex.practicum.filmorate.storage.GenreStorage;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 @Component
 public class DataBaseGenreStorage implements GenreStorage {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
 
     @Autowired
-    public DataBaseGenreStorage(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public DataBaseGenreStorage(ReferenceDataCache referenceData) {
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<FilmGenre> getAllGenre() {
-        String sqlQuery = "SELECT * FROM genre";
-
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> createGenre(rs));
+        return referenceData.getAllGenres();
     }
 
     @Override
     public FilmGenre getGenreById(long genreId) {
-        String sqlQuery = "SELECT * FROM genre WHERE genre_id = ?";
-        SqlRowSet genreRow = jdbcTemplate.queryForRowSet(sqlQuery, genreId);
-
-        if (genreRow.next()) {
-            return FilmGenre.builder()
-                    .id(genreRow.getInt("genre_id"))
-                    .name(genreRow.getString("name"))
-                    .build();
-        } else {
-            throw new NoSuchElementException("Жанра под таким идентификатором не существует");
-        }
-    }
-
-    private FilmGenre createGenre(ResultSet rs) throws SQLException {
-        return FilmGenre.builder()
-                .id(rs.getInt("genre_id"))
-                .name(rs.getString("name"))
-                .build();
+        return referenceData.getGenre(genreId);
     }
 }
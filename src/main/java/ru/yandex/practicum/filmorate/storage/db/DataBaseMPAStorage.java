@@ -1,52 +1,28 @@
 package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
-import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
 import ru.yandex.practicum.filmorate.model.MPA;
 import ru.yandex.practicum.filmorate.storage.MPAStorage;
 
-import java.sql.ResultSet;
-import java.sql.SQLException;
 import java.util.List;
-import java.util.NoSuchElementException;
 
 @Component
 public class DataBaseMPAStorage implements MPAStorage {
-    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceDataCache referenceData;
 
     @Autowired
-    public DataBaseMPAStorage(JdbcTemplate jdbcTemplate) {
-        this.jdbcTemplate = jdbcTemplate;
+    public DataBaseMPAStorage(ReferenceDataCache referenceData) {
+        this.referenceData = referenceData;
     }
 
     @Override
     public List<MPA> getAllMPA() {
-        String sql = "SELECT * FROM mpa";
-
-        return jdbcTemplate.query(sql, (rs, rowNum) -> makeMpa(rs));
+        return referenceData.getAllMPA();
     }
 
     @Override
     public MPA getMPAById(int mpaId) {
-        String sqlQuery = "SELECT * FROM mpa WHERE mpa_id = ?";
-        SqlRowSet mpaRow = jdbcTemplate.queryForRowSet(sqlQuery, mpaId);
-
-        if (mpaRow.next()) {
-            return MPA.builder()
-                    .id(mpaRow.getInt("mpa_id"))
-                    .name(mpaRow.getString("title"))
-                    .build();
-        } else {
-            throw new NoSuchElementException("МРА с таким айди не существует");
-        }
-    }
-
-    private MPA makeMpa(ResultSet rs) throws SQLException {
-        return MPA.builder()
-                .id(rs.getInt("mpa_id"))
-                .name(rs.getString("title"))
-                .build();
+        return referenceData.getMPA(mpaId);
     }
 }
@@ -2,41 +2,103 @@ package ru.yandex.practicum.filmorate.storage.db;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
 import org.springframework.jdbc.support.rowset.SqlRowSet;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Friendship;
 import ru.yandex.practicum.filmorate.model.User;
 import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.index.FriendshipIndex;
 import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
 
+import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.util.*;
+import java.util.function.Consumer;
 
 @Component
 public class DataBaseUserStorage implements UserStorage {
+    private static final int EXPORT_FETCH_SIZE = 500;
+
     private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final JdbcTemplate exportJdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final EntityCache<User> userCache;
+    private final ResourceVersions versions;
+    private final FriendshipIndex friendshipIndex;
+    // Метаданные таблицы читаются один раз при первой вставке, дальше insert переиспользуется
+    private final SimpleJdbcInsert userInsert;
 
     @Autowired
-    public DataBaseUserStorage(JdbcTemplate jdbcTemplate) {
+    public DataBaseUserStorage(JdbcTemplate jdbcTemplate,
+                               TransactionTemplate transactionTemplate,
+                               EntityCache<User> userCache,
+                               ResourceVersions versions,
+                               FriendshipIndex friendshipIndex) {
         this.jdbcTemplate = jdbcTemplate;
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+        this.exportJdbcTemplate = new JdbcTemplate(Objects.requireNonNull(jdbcTemplate.getDataSource()));
+        this.exportJdbcTemplate.setFetchSize(EXPORT_FETCH_SIZE);
+        this.transactionTemplate = transactionTemplate;
+        this.userCache = userCache;
+        this.versions = versions;
+        this.friendshipIndex = friendshipIndex;
+        this.userInsert = new SimpleJdbcInsert(jdbcTemplate)
+                .withTableName("users")
+                .usingGeneratedKeyColumns("id");
     }
 
     @Override
     public List<User> getAll() {
         String sqlQuery = "SELECT * FROM users";
-        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> get(rs.getInt("id")));
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> makeUser(rs));
+    }
+
+    @Override
+    public List<User> getPage(int afterId, int limit) {
+        String sqlQuery = "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?";
+        return jdbcTemplate.query(sqlQuery, (rs, rowNum) -> makeUser(rs), afterId, limit);
+    }
+
+    // Строки отдаются потребителю прямо из курсора, список пользователей целиком не собирается
+    @Override
+    public void exportAll(Consumer<User> consumer) {
+        String sqlQuery = "SELECT * FROM users ORDER BY id";
+        exportJdbcTemplate.query(sqlQuery, rs -> {
+            consumer.accept(makeUser(rs));
+        });
     }
 
     @Override
     public User create(User user) {
         user = checkUserName(user);
 
-        SimpleJdbcInsert simpleJdbcInsert = new SimpleJdbcInsert(jdbcTemplate)
-                .withTableName("users")
-                .usingGeneratedKeyColumns("id");
+        int id = userInsert.executeAndReturnKey(userToMap(user)).intValue();
+        User created = loadUser(id);
+        versions.touchUser(id);
+
+        return created;
+    }
+
+    @Override
+    public void createAll(List<User> users) {
+        String sqlQuery = "INSERT INTO users (name, email, login, birthday) VALUES (?, ?, ?, ?)";
+        List<Object[]> args = new ArrayList<>(users.size());
 
-        int id = simpleJdbcInsert.executeAndReturnKey(userToMap(user)).intValue();
+        for (User user : users) {
+            user = checkUserName(user);
+            args.add(new Object[]{user.getName(), user.getEmail(), user.getLogin(), user.getBirthday()});
+        }
 
-        return get(id);
+        // Пачка пишется целиком или не пишется вовсе
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(sqlQuery, args));
+        versions.touchAllUsers();
     }
 
     @Override
@@ -53,36 +115,40 @@ public class DataBaseUserStorage implements UserStorage {
                 user.getBirthday(),
                 user.getId());
 
-        return get(user.getId());
+        userCache.invalidate(user.getId());
+        User updated = loadUser(user.getId());
+        versions.touchUser(updated.getId());
+
+        return updated;
     }
 
     @Override
     public User get(int id) {
-        User user;
-        String sqlQuery = "SELECT * FROM users WHERE id = ?";
-
-        SqlRowSet userSql = jdbcTemplate.queryForRowSet(sqlQuery, id);
-
-        if (userSql.next()) {
-            user = User.builder().id(userSql.getInt("id"))
-                    .email(userSql.getString("email"))
-                    .name(userSql.getString("name"))
-                    .login(userSql.getString("login"))
-                    .birthday(Objects.requireNonNull(userSql.getDate("birthday")).toLocalDate())
-                    .build();
-        } else {
+        User user = userCache.get(id, this::loadUsers);
+
+        if (user == null) {
             throw new UserNotFoundException();
         }
 
         return user;
     }
 
+    @Override
+    public List<User> getByIds(Collection<Integer> ids) {
+        return userCache.getAll(ids, this::loadUsers);
+    }
+
     @Override
     public List<User> getFriends(int id) {
-        userValidation(id);
-        String sql = "SELECT friend_id FROM user_friends WHERE user_id = ?";
-        return jdbcTemplate.query(sql, (rs, rowNum) ->
-                get(rs.getInt("friend_id")), id);
+        String sql = "SELECT u.* FROM user_friends AS uf JOIN users AS u ON uf.friend_id = u.id WHERE uf.user_id = ?";
+        List<User> friends = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), id);
+
+        // Пустой список может означать и отсутствие пользователя, проверяем только в этом случае
+        if (friends.isEmpty()) {
+            userValidation(id);
+        }
+
+        return friends;
     }
 
     @Override
@@ -93,11 +159,41 @@ public class DataBaseUserStorage implements UserStorage {
         if (isFriends(userId, friendId)) {
             String sqlQuery = "MERGE INTO user_friends (user_id, friend_id) VALUES (?, ?)";
             jdbcTemplate.update(sqlQuery, userId, friendId);
+            friendshipIndex.addFriend(userId, friendId);
+            versions.touchFriends(userId);
         } else {
             throw new IllegalArgumentException("Данный пользователь уже добавлен в друзья");
         }
     }
 
+    @Override
+    public int[] addFriends(List<Friendship> friendships) {
+        String sqlQuery = "INSERT INTO user_friends (user_id, friend_id) SELECT ?, ? " +
+                "WHERE NOT EXISTS (SELECT 1 FROM user_friends WHERE user_id = ? AND friend_id = ?)";
+        List<Object[]> args = new ArrayList<>(friendships.size());
+
+        for (Friendship friendship : friendships) {
+            args.add(new Object[]{friendship.getUserId(), friendship.getFriendId(),
+                    friendship.getUserId(), friendship.getFriendId()});
+        }
+
+        int[] inserted = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(sqlQuery, args));
+        Set<Integer> userIds = new HashSet<>();
+
+        for (int i = 0; i < inserted.length; i++) {
+            Friendship friendship = friendships.get(i);
+
+            if (inserted[i] != 0) {
+                friendshipIndex.addFriend(friendship.getUserId(), friendship.getFriendId());
+                userIds.add(friendship.getUserId());
+            }
+        }
+
+        versions.touchFriends(userIds);
+
+        return inserted;
+    }
+
     @Override
     public void deleteFriend(int userId, int friendId) {
         userValidation(userId);
@@ -105,6 +201,8 @@ public class DataBaseUserStorage implements UserStorage {
         if (!isFriends(userId, friendId)) {
             String sql = "DELETE FROM user_friends WHERE user_id = ? AND friend_id = ?";
             jdbcTemplate.update(sql, userId, friendId);
+            friendshipIndex.deleteFriend(userId, friendId);
+            versions.touchFriends(userId);
         }
 
         // Новые тесты постаман не хотят получать 404 ошибку, если идет удаление друга, которого нет
@@ -112,21 +210,79 @@ public class DataBaseUserStorage implements UserStorage {
 
     @Override
     public List<User> getCommonFriends(int userId, int otherUserId) {
+        String sql = "SELECT u.* FROM user_friends AS uf " +
+                "JOIN user_friends AS other ON uf.friend_id = other.friend_id AND other.user_id = ? " +
+                "JOIN users AS u ON uf.friend_id = u.id " +
+                "WHERE uf.user_id = ?";
+
+        List<User> mutualFriends = jdbcTemplate.query(sql, (rs, rowNum) -> makeUser(rs), otherUserId, userId);
+
+        if (mutualFriends.isEmpty()) {
+            userValidation(userId);
+            userValidation(otherUserId);
+        }
+
+        return mutualFriends;
+    }
+
+    // Пользователи загружаются только для итогового топа, сам ранжир считается по индексу в памяти
+    @Override
+    public List<User> getFriendSuggestions(int userId, int count) {
         userValidation(userId);
-        userValidation(otherUserId);
+        List<Integer> ids = new ArrayList<>();
+
+        for (int id : friendshipIndex.suggest(userId, count)) {
+            ids.add(id);
+        }
+
+        return getByIds(ids);
+    }
 
-        String sql = "SELECT friend_id FROM user_friends WHERE user_id = ? AND  friend_id IN " +
-                "(SELECT friend_id FROM user_friends WHERE user_id = ?)";
+    // Запись читает пользователя мимо кэша: в кэш попадает только то, что запрашивали на чтение
+    private User loadUser(int id) {
+        List<User> users = loadUsers(List.of(id));
 
-        Set<User> mutualFriends = new HashSet<>();
+        if (users.isEmpty()) {
+            throw new UserNotFoundException();
+        }
 
-        SqlRowSet friends = jdbcTemplate.queryForRowSet(sql, userId, otherUserId);
+        return users.get(0);
+    }
 
-        if (friends.next()) {
-            mutualFriends.add(get(friends.getInt("friend_id")));
+    private List<User> loadUsers(Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
         }
 
-        return new ArrayList<>(mutualFriends);
+        String sql = "SELECT * FROM users WHERE id IN (:ids)";
+
+        Map<Integer, User> users = new HashMap<>();
+        namedJdbcTemplate.query(sql, new MapSqlParameterSource("ids", ids), rs -> {
+            User user = makeUser(rs);
+            users.put(user.getId(), user);
+        });
+
+        List<User> result = new ArrayList<>(users.size());
+
+        for (Integer id : ids) {
+            User user = users.get(id);
+
+            if (user != null) {
+                result.add(user);
+            }
+        }
+
+        return result;
+    }
+
+    private User makeUser(ResultSet rs) throws SQLException {
+        return User.builder()
+                .id(rs.getInt("id"))
+                .email(rs.getString("email"))
+                .name(rs.getString("name"))
+                .login(rs.getString("login"))
+                .birthday(Objects.requireNonNull(rs.getDate("birthday")).toLocalDate())
+                .build();
     }
 
     private User checkUserName(User user) {
@@ -147,13 +303,9 @@ public class DataBaseUserStorage implements UserStorage {
         return mapUser;
     }
 
+    // Существование проверяется через кэш, так что повторные проверки одного пользователя в базу не ходят
     private void userValidation(int id) {
-        String sql = "SELECT * FROM users WHERE id = ?";
-        SqlRowSet userSql = jdbcTemplate.queryForRowSet(sql, id);
-
-        if (!userSql.next()) {
-            throw new UserNotFoundException();
-        }
+        get(id);
     }
 
     private boolean isFriends(int userId, int friendId) {
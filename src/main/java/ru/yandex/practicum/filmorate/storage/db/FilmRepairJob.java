@@ -0,0 +1,120 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.FilmSearchIndex;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Пересчитывает likes_count и genre_mask фильмов с нуля по users_like и films_genre.
+ * rate сдвигается на ту же величину, что и likes_count: в нем пользовательская оценка плюс лайки,
+ * и пользовательская часть при ремонте не должна теряться.
+ * Запускается вручную (эндпоинт filmrepair) или периодически, если filmorate.repair.enabled=true.
+ */
+@Component
+@Slf4j
+public class FilmRepairJob {
+    private final JdbcTemplate jdbcTemplate;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmSearchIndex searchIndex;
+    private final EntityCache<Film> filmCache;
+    private final ResourceVersions versions;
+    private final boolean enabled;
+    private final long intervalMs;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public FilmRepairJob(JdbcTemplate jdbcTemplate,
+                         LikeWriteBuffer likeWriteBuffer,
+                         FilmPopularityIndex popularityIndex,
+                         FilmSearchIndex searchIndex,
+                         EntityCache<Film> filmCache,
+                         ResourceVersions versions,
+                         @Value("${filmorate.repair.enabled:false}") boolean enabled,
+                         @Value("${filmorate.repair.interval-ms:3600000}") long intervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.likeWriteBuffer = likeWriteBuffer;
+        this.popularityIndex = popularityIndex;
+        this.searchIndex = searchIndex;
+        this.filmCache = filmCache;
+        this.versions = versions;
+        this.enabled = enabled;
+        this.intervalMs = intervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "films-repair");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                repair();
+            } catch (RuntimeException ex) {
+                log.error("Не удалось пересчитать поля фильмов", ex);
+            }
+        }, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+        }
+    }
+
+    // Возвращает число исправленных фильмов
+    public synchronized int repair() {
+        String sqlQuery = "UPDATE films f SET " +
+                "rate = COALESCE(f.rate, 0) + (SELECT COUNT(*) FROM users_like l WHERE l.film_id = f.film_id) " +
+                "- f.likes_count, " +
+                "likes_count = (SELECT COUNT(*) FROM users_like l WHERE l.film_id = f.film_id), " +
+                "genre_mask = (SELECT COALESCE(SUM(LSHIFT(CAST(1 AS bigint), g.genre_id - 1)), 0) " +
+                "FROM films_genre g WHERE g.film_id = f.film_id) " +
+                "WHERE f.likes_count <> (SELECT COUNT(*) FROM users_like l WHERE l.film_id = f.film_id) " +
+                "OR f.genre_mask <> (SELECT COALESCE(SUM(LSHIFT(CAST(1 AS bigint), g.genre_id - 1)), 0) " +
+                "FROM films_genre g WHERE g.film_id = f.film_id)";
+
+        /*
+         * Буфер сбрасывается, и до конца пересборки индексов лайки ждут: иначе лайк, записанный между UPDATE
+         * и пересборкой, попал бы в индекс дважды, а отложенный - потерялся бы при пересборке из базы
+         */
+        int repaired = likeWriteBuffer.flushAndRun(() -> {
+            int updated = jdbcTemplate.update(sqlQuery);
+
+            if (updated > 0) {
+                filmCache.invalidateAll();
+                popularityIndex.rebuild();
+                searchIndex.rebuild();
+                versions.touchAllFilms();
+            }
+
+            return updated;
+        });
+
+        if (repaired > 0) {
+            log.warn("Пересчитаны денормализованные поля у {} фильмов", repaired);
+        }
+
+        return repaired;
+    }
+}
@@ -0,0 +1,481 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.validationExceptions.FilmNotFoundException;
+import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/*
+ * Отложенная запись лайков. События лайк/дизлайк копятся в памяти, разбитые на полосы по id фильма,
+ * и периодически сбрасываются в базу пачками вместе с суммарным изменением rate по каждому фильму.
+ * Проверки "уже лайкал"/"не лайкал" смотрят сначала в буфер, поэтому пользователь сразу видит свой лайк.
+ * rate меняется ровно на число строк, которые вставка и удаление действительно затронули. Если пачка полосы
+ * не записывается, строки пишутся по одной, а те, что не записались и так, выбрасываются с записью в лог
+ * и счетчик filmorate.likes.dead_letters: иначе одна плохая строка держала бы полосу вечно.
+ * Индексы, кэш фильмов и версии ресурсов буфер меняет сам под замком полосы: сразу при лайке и обратно,
+ * если строка при сбросе не изменила базу.
+ */
+@Component
+@Slf4j
+public class LikeWriteBuffer {
+    private static final int STRIPES_COUNT = 16;
+    private static final String SQL_INSERT = "INSERT INTO users_like (film_id, user_id) SELECT ?, ? " +
+            "WHERE NOT EXISTS (SELECT 1 FROM users_like WHERE film_id = ? AND user_id = ?)";
+    private static final String SQL_DELETE = "DELETE FROM users_like WHERE film_id = ? AND user_id = ?";
+    private static final String SQL_RATE = "UPDATE films SET rate = COALESCE(rate, 0) + ?, " +
+            "likes_count = likes_count + ? WHERE film_id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final LikeIndex likeIndex;
+    private final ResourceVersions versions;
+    private final EntityCache<Film> filmCache;
+    private final boolean enabled;
+    private final long flushIntervalMs;
+    private final int bufferSize;
+    private final Stripe[] stripes;
+    private final AtomicInteger pendingCount = new AtomicInteger();
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final AtomicLong flushes = new AtomicLong();
+    private final Counter deadLetters;
+    private ScheduledExecutorService scheduler;
+
+    @Autowired
+    public LikeWriteBuffer(JdbcTemplate jdbcTemplate,
+                           TransactionTemplate transactionTemplate,
+                           FilmPopularityIndex popularityIndex,
+                           LikeIndex likeIndex,
+                           ResourceVersions versions,
+                           EntityCache<Film> filmCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${filmorate.likes.write-behind.enabled:false}") boolean enabled,
+                           @Value("${filmorate.likes.write-behind.flush-interval-ms:1000}") long flushIntervalMs,
+                           @Value("${filmorate.likes.write-behind.buffer-size:10000}") int bufferSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.popularityIndex = popularityIndex;
+        this.likeIndex = likeIndex;
+        this.versions = versions;
+        this.filmCache = filmCache;
+        this.enabled = enabled;
+        this.flushIntervalMs = flushIntervalMs;
+        this.bufferSize = bufferSize;
+        this.deadLetters = meterRegistry.counter("filmorate.likes.dead_letters");
+        this.stripes = new Stripe[STRIPES_COUNT];
+
+        for (int i = 0; i < STRIPES_COUNT; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "likes-flush");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        if (scheduler == null) {
+            return;
+        }
+
+        scheduler.shutdown();
+        scheduler.awaitTermination(flushIntervalMs * 2, TimeUnit.MILLISECONDS);
+        flush();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public void like(int filmId, int userId) {
+        Stripe stripe = stripeOf(filmId);
+        long key = key(filmId, userId);
+
+        stripe.lock.lock();
+        try {
+            Boolean pending = stripe.likes.get(key);
+
+            if (pending == null && isLikedInDataBase(filmId, userId, true) || Boolean.TRUE.equals(pending)) {
+                throw new IllegalArgumentException("Данный пользователь уже поставил лайк этому фильму");
+            }
+
+            applyChange(stripe, key, filmId, pending, true);
+            changeIndexes(filmId, userId, true);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        requestFlushIfFull();
+    }
+
+    public void unlike(int filmId, int userId) {
+        Stripe stripe = stripeOf(filmId);
+        long key = key(filmId, userId);
+
+        stripe.lock.lock();
+        try {
+            Boolean pending = stripe.likes.get(key);
+
+            if (pending == null && !isLikedInDataBase(filmId, userId, false) || Boolean.FALSE.equals(pending)) {
+                throw new UserNotFoundException("Такой пользователь не лайкал фильм");
+            }
+
+            applyChange(stripe, key, filmId, pending, false);
+            changeIndexes(filmId, userId, false);
+        } finally {
+            stripe.lock.unlock();
+        }
+
+        requestFlushIfFull();
+    }
+
+    // Изменение rate фильма, которое еще не попало в базу
+    public int pendingRateDelta(int filmId) {
+        if (!enabled) {
+            return 0;
+        }
+
+        Stripe stripe = stripeOf(filmId);
+
+        stripe.lock.lock();
+        try {
+            return stripe.rateDeltas.getOrDefault(filmId, 0);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    /*
+     * rate фильма из базы вместе с лайками в буфере. storedRate прочитан из строки, запрос которой начался
+     * при числе сбросов flushesBefore. Если с тех пор полоса успела сброситься, строка могла быть прочитана
+     * до фиксации rate, а буфер уже очищен: тогда rate перечитывается через storedRateNow под замком полосы,
+     * который сброс держит от записи до очистки.
+     */
+    public int rateWithPending(int filmId, int storedRate, long flushesBefore, IntSupplier storedRateNow) {
+        if (!enabled) {
+            return storedRate;
+        }
+
+        Stripe stripe = stripeOf(filmId);
+
+        stripe.lock.lock();
+        try {
+            int rate = flushes.get() == flushesBefore ? storedRate : storedRateNow.getAsInt();
+
+            return rate + stripe.rateDeltas.getOrDefault(filmId, 0);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    // Число сбросов полос, в которых что-то было; берется до чтения строк фильмов для rateWithPending
+    public long flushes() {
+        return flushes.get();
+    }
+
+    public synchronized void flush() {
+        flushRequested.set(false);
+
+        for (Stripe stripe : stripes) {
+            // Полоса заблокирована на время записи, чтобы проверки лайков не увидели промежуточного состояния
+            stripe.lock.lock();
+            try {
+                flushStripe(stripe);
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    /*
+     * Сбрасывает буфер и выполняет action, не отпуская ни одной полосы: лайк, поставленный в это время,
+     * дождется конца action и проверит дубликат уже по базе. Нужно массовой записи лайков в обход буфера
+     * и ремонту фильмов. Работает и при выключенном буфере - тогда ждет лайки, записываемые через runLocked.
+     */
+    public synchronized <T> T flushAndRun(Supplier<T> action) {
+        flushRequested.set(false);
+
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+
+        try {
+            for (Stripe stripe : stripes) {
+                flushStripe(stripe);
+            }
+
+            return action.get();
+        } finally {
+            for (Stripe stripe : stripes) {
+                stripe.lock.unlock();
+            }
+        }
+    }
+
+    // Лайк при выключенном буфере: запись в базу и индексы под замком полосы, чтобы flushAndRun ее не разрезал
+    public void runLocked(int filmId, Runnable write) {
+        Stripe stripe = stripeOf(filmId);
+
+        stripe.lock.lock();
+        try {
+            write.run();
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    private void flushStripe(Stripe stripe) {
+        if (stripe.likes.isEmpty()) {
+            return;
+        }
+
+        try {
+            List<Long> unchanged = transactionTemplate.execute(status -> writeStripe(stripe));
+
+            for (long key : unchanged) {
+                boolean like = stripe.likes.get(key);
+                // Вставка не нашла места - строка уже есть, удаление ничего не нашло - строки уже нет
+                revert(key, like, like);
+            }
+        } catch (RuntimeException ex) {
+            log.warn("Пачку лайков не удалось записать, пишем по одному", ex);
+            writeRows(stripe);
+        }
+
+        Set<Integer> filmIds = new HashSet<>();
+
+        for (long key : stripe.likes.keySet()) {
+            filmIds.add(filmIdOf(key));
+        }
+
+        pendingCount.addAndGet(-stripe.likes.size());
+        stripe.likes.clear();
+        stripe.rateDeltas.clear();
+        flushes.incrementAndGet();
+        // Загрузка, прочитавшая строку до сброса, а буфер после, не должна остаться в кэше
+        filmCache.invalidateAll(filmIds);
+    }
+
+    // Возвращает строки, которые не изменили базу
+    private List<Long> writeStripe(Stripe stripe) {
+        List<Long> inserts = new ArrayList<>();
+        List<Long> deletes = new ArrayList<>();
+
+        for (Map.Entry<Long, Boolean> entry : stripe.likes.entrySet()) {
+            if (entry.getValue()) {
+                inserts.add(entry.getKey());
+            } else {
+                deletes.add(entry.getKey());
+            }
+        }
+
+        Map<Integer, Integer> rateDeltas = new HashMap<>();
+        List<Long> unchanged = new ArrayList<>();
+        int[] deleted = jdbcTemplate.batchUpdate(SQL_DELETE, rowArgs(deletes, false));
+        int[] inserted = jdbcTemplate.batchUpdate(SQL_INSERT, rowArgs(inserts, true));
+        countChanges(deletes, deleted, -1, rateDeltas, unchanged);
+        countChanges(inserts, inserted, 1, rateDeltas, unchanged);
+
+        List<Object[]> rates = new ArrayList<>(rateDeltas.size());
+        rateDeltas.forEach((filmId, delta) -> rates.add(new Object[]{delta, delta, filmId}));
+        jdbcTemplate.batchUpdate(SQL_RATE, rates);
+
+        return unchanged;
+    }
+
+    // Каждая строка - своя транзакция вместе с изменением rate фильма
+    private void writeRows(Stripe stripe) {
+        for (Map.Entry<Long, Boolean> entry : stripe.likes.entrySet()) {
+            long key = entry.getKey();
+            boolean like = entry.getValue();
+
+            try {
+                boolean changed = Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+                    Object[] args = rowArgs(List.of(key), like).get(0);
+
+                    if (jdbcTemplate.update(like ? SQL_INSERT : SQL_DELETE, args) == 0) {
+                        return false;
+                    }
+
+                    int delta = like ? 1 : -1;
+                    jdbcTemplate.update(SQL_RATE, delta, delta, filmIdOf(key));
+
+                    return true;
+                }));
+
+                if (!changed) {
+                    log.warn("Лайк фильма {} пользователем {} уже был записан", filmIdOf(key), userIdOf(key));
+                    revert(key, like, like);
+                }
+            } catch (RuntimeException ex) {
+                deadLetters.increment();
+                log.error("Лайк фильма {} пользователем {} ({}) не записан и выброшен из буфера",
+                        filmIdOf(key), userIdOf(key), like ? "вставка" : "удаление", ex);
+                // Строка в базе осталась такой, какой была до лайка
+                revert(key, like, !like);
+            }
+        }
+    }
+
+    // Строка, которую запрос не затронул (лайк уже есть или уже удален), rate не меняет
+    private static void countChanges(List<Long> keys,
+                                     int[] counts,
+                                     int delta,
+                                     Map<Integer, Integer> rateDeltas,
+                                     List<Long> unchanged) {
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] != 0) {
+                rateDeltas.merge(filmIdOf(keys.get(i)), delta, Integer::sum);
+            } else {
+                unchanged.add(keys.get(i));
+            }
+        }
+    }
+
+    private void changeIndexes(int filmId, int userId, boolean like) {
+        filmCache.invalidate(filmId);
+        popularityIndex.changeRate(filmId, like ? 1 : -1);
+
+        if (like) {
+            likeIndex.like(filmId, userId);
+        } else {
+            likeIndex.unlike(filmId, userId);
+        }
+
+        versions.touchFilm(filmId);
+    }
+
+    // Лайк не изменил rate в базе: его изменение rate отменяется, а LikeIndex приводится к строке в базе
+    private void revert(long key, boolean like, boolean stored) {
+        int filmId = filmIdOf(key);
+
+        popularityIndex.changeRate(filmId, like ? -1 : 1);
+
+        if (stored) {
+            likeIndex.like(filmId, userIdOf(key));
+        } else {
+            likeIndex.unlike(filmId, userIdOf(key));
+        }
+
+        versions.touchFilm(filmId);
+    }
+
+    private static List<Object[]> rowArgs(List<Long> keys, boolean insert) {
+        List<Object[]> args = new ArrayList<>(keys.size());
+
+        for (long key : keys) {
+            args.add(insert
+                    ? new Object[]{filmIdOf(key), userIdOf(key), filmIdOf(key), userIdOf(key)}
+                    : new Object[]{filmIdOf(key), userIdOf(key)});
+        }
+
+        return args;
+    }
+
+    // Лайк после дизлайка (и наоборот) внутри одного окна просто взаимно уничтожаются
+    private void applyChange(Stripe stripe, long key, int filmId, Boolean pending, boolean like) {
+        if (pending == null) {
+            stripe.likes.put(key, like);
+            pendingCount.incrementAndGet();
+        } else {
+            stripe.likes.remove(key);
+            pendingCount.decrementAndGet();
+        }
+
+        stripe.rateDeltas.merge(filmId, like ? 1 : -1, (oldDelta, delta) -> {
+            int sum = oldDelta + delta;
+            return sum == 0 ? null : sum;
+        });
+    }
+
+    private boolean isLikedInDataBase(int filmId, int userId, boolean checkExistence) {
+        String sqlQuery = "SELECT (SELECT COUNT(*) FROM films WHERE film_id = ?) AS films, " +
+                "(SELECT COUNT(*) FROM users WHERE id = ?) AS users, " +
+                "(SELECT COUNT(*) FROM users_like WHERE film_id = ? AND user_id = ?) AS likes";
+
+        return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sqlQuery, (rs, rowNum) -> {
+            if (checkExistence && rs.getInt("films") == 0) {
+                throw new FilmNotFoundException("Фильм с таким id не найден");
+            }
+
+            if (checkExistence && rs.getInt("users") == 0) {
+                throw new UserNotFoundException();
+            }
+
+            return rs.getInt("likes") > 0;
+        }, filmId, userId, filmId, userId));
+    }
+
+    private void requestFlushIfFull() {
+        // После остановки фонового потока события не должны застревать в буфере
+        if (scheduler.isShutdown()) {
+            flush();
+        } else if (pendingCount.get() >= bufferSize && flushRequested.compareAndSet(false, true)) {
+            scheduler.execute(this::flush);
+        }
+    }
+
+    private Stripe stripeOf(int filmId) {
+        return stripes[Math.floorMod(filmId, STRIPES_COUNT)];
+    }
+
+    private static long key(int filmId, int userId) {
+        return ((long) filmId << 32) | (userId & 0xFFFFFFFFL);
+    }
+
+    private static int filmIdOf(long key) {
+        return (int) (key >>> 32);
+    }
+
+    private static int userIdOf(long key) {
+        return (int) key;
+    }
+
+    private static class Stripe {
+        private final Lock lock = new ReentrantLock();
+        // true - лайк нужно вставить, false - удалить
+        private final Map<Long, Boolean> likes = new HashMap<>();
+        private final Map<Integer, Integer> rateDeltas = new HashMap<>();
+    }
+}
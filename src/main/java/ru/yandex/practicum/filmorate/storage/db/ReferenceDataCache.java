@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.storage.db;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+ * Справочники жанров и МРА целиком в памяти. Таблицы крошечные и заполняются миграциями Flyway,
+ * поэтому держим массивы, где индекс - это id, и отдаем одни и те же неизменяемые экземпляры всем читателям.
+ * После ручного изменения справочников в базе нужно вызвать refresh(), каждый вызов меняет версию снимка.
+ */
+@Component
+public class ReferenceDataCache {
+    private final JdbcTemplate jdbcTemplate;
+    private final AtomicLong versions = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    @Autowired
+    public ReferenceDataCache(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void refresh() {
+        List<FilmGenre> genres = jdbcTemplate.query("SELECT * FROM genre ORDER BY genre_id", (rs, rowNum) ->
+                FilmGenre.builder()
+                        .id(rs.getInt("genre_id"))
+                        .name(rs.getString("name"))
+                        .build());
+        List<MPA> mpa = jdbcTemplate.query("SELECT * FROM mpa ORDER BY mpa_id", (rs, rowNum) ->
+                MPA.builder()
+                        .id(rs.getInt("mpa_id"))
+                        .name(rs.getString("title"))
+                        .build());
+
+        snapshot = new Snapshot(versions.incrementAndGet(), genres, mpa);
+    }
+
+    // По версии производные от справочников данные понимают, что их пора пересобрать
+    public long getVersion() {
+        return snapshot.version;
+    }
+
+    public List<FilmGenre> getAllGenres() {
+        return snapshot.genresList;
+    }
+
+    public FilmGenre getGenre(long id) {
+        FilmGenre[] genres = snapshot.genres;
+
+        if (id < 0 || id >= genres.length || genres[(int) id] == null) {
+            throw new NoSuchElementException("Жанра под таким идентификатором не существует");
+        }
+
+        return genres[(int) id];
+    }
+
+    public List<MPA> getAllMPA() {
+        return snapshot.mpaList;
+    }
+
+    public MPA getMPA(int id) {
+        MPA[] mpa = snapshot.mpa;
+
+        if (id < 0 || id >= mpa.length || mpa[id] == null) {
+            throw new NoSuchElementException("МРА с таким id не существует");
+        }
+
+        return mpa[id];
+    }
+
+    private static class Snapshot {
+        private final long version;
+        private final FilmGenre[] genres;
+        private final List<FilmGenre> genresList;
+        private final MPA[] mpa;
+        private final List<MPA> mpaList;
+
+        private Snapshot(long version, List<FilmGenre> genres, List<MPA> mpa) {
+            this.version = version;
+            this.genresList = Collections.unmodifiableList(new ArrayList<>(genres));
+            this.mpaList = Collections.unmodifiableList(new ArrayList<>(mpa));
+            this.genres = new FilmGenre[genres.stream().mapToInt(FilmGenre::getId).max().orElse(0) + 1];
+            this.mpa = new MPA[mpa.stream().mapToInt(MPA::getId).max().orElse(0) + 1];
+
+            for (FilmGenre genre : genres) {
+                this.genres[genre.getId()] = genre;
+            }
+
+            for (MPA rating : mpa) {
+                this.mpa[rating.getId()] = rating;
+            }
+        }
+    }
+}
@@ -0,0 +1,272 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntPredicate;
+
+/*
+ * Фильмы, упорядоченные по rate, в памяти. Ключ - пара (rate, film_id), упакованная в long так,
+ * что обычный порядок long дает rate по убыванию, а при равном rate - film_id по возрастанию.
+ * Кроме общего рейтинга есть рейтинги внутри каждого жанра, года выпуска и МРА.
+ * Лайки и изменения фильмов правят индекс точечно, топ N отдается без обращения к базе.
+ */
+@Component
+public class FilmPopularityIndex {
+    private static final int GENRES_LIMIT = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeSet<Long> ranking = new TreeSet<>();
+    private final Map<Integer, Integer> rates = new HashMap<>();
+    private final Map<Integer, Partitions> partitions = new HashMap<>();
+    private final Map<Integer, TreeSet<Long>> byGenre = new HashMap<>();
+    private final Map<Integer, TreeSet<Long>> byYear = new HashMap<>();
+    private final Map<Integer, TreeSet<Long>> byMpa = new HashMap<>();
+
+    @Autowired
+    public FilmPopularityIndex(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // Строится при старте, до того как приложение начнет принимать запросы
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT film_id, rate, genre_mask, release_date, mpa_id FROM films";
+
+        lock.writeLock().lock();
+        try {
+            ranking.clear();
+            rates.clear();
+            partitions.clear();
+            byGenre.clear();
+            byYear.clear();
+            byMpa.clear();
+            jdbcTemplate.query(sqlQuery, rs -> {
+                put(rs.getInt("film_id"), rs.getInt("rate"), new Partitions(
+                        rs.getLong("genre_mask"),
+                        Objects.requireNonNull(rs.getDate("release_date")).toLocalDate().getYear(),
+                        rs.getInt("mpa_id")));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Новый фильм: rate, жанры, год и МРА берутся из самого фильма
+    public void put(int filmId, Film film) {
+        Partitions filmPartitions = partitionsOf(film);
+
+        lock.writeLock().lock();
+        try {
+            put(filmId, film.getRate() == null ? 0 : film.getRate(), filmPartitions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Новая версия фильма. rate прочитан из базы без блокировки индекса, и лайк, пришедший между записью и этим
+     * вызовом, уже мог изменить его здесь. Поэтому rate меняется только на разницу, которую внесло само
+     * изменение, а от новой версии берутся жанры, год и МРА.
+     */
+    public void update(int filmId, Film film, int rateDelta) {
+        Partitions filmPartitions = partitionsOf(film);
+
+        lock.writeLock().lock();
+        try {
+            Integer rate = rates.get(filmId);
+            put(filmId, rate == null ? (film.getRate() == null ? 0 : film.getRate()) : rate + rateDelta, filmPartitions);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void changeRate(int filmId, int delta) {
+        lock.writeLock().lock();
+        try {
+            Integer rate = rates.get(filmId);
+
+            if (rate != null) {
+                put(filmId, rate + delta, partitions.get(filmId));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int getRate(int filmId) {
+        lock.readLock().lock();
+        try {
+            return rates.getOrDefault(filmId, 0);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<Integer> getTop(int count) {
+        return getTop(count, filmId -> true);
+    }
+
+    /*
+     * Топ внутри жанра, года и МРА; null - без ограничения. Просматривается самый короткий из запрошенных
+     * рейтингов, остальные условия проверяются по разбиению фильма.
+     */
+    public List<Integer> getTop(int count, Integer genreId, Integer year, Integer mpaId) {
+        lock.readLock().lock();
+        try {
+            List<TreeSet<Long>> requested = new ArrayList<>(3);
+            TreeSet<Long> source = ranking;
+
+            if (genreId != null) {
+                requested.add(byGenre.get(genreId));
+            }
+
+            if (year != null) {
+                requested.add(byYear.get(year));
+            }
+
+            if (mpaId != null) {
+                requested.add(byMpa.get(mpaId));
+            }
+
+            for (TreeSet<Long> leaderboard : requested) {
+                if (leaderboard == null) {
+                    return new ArrayList<>();
+                }
+
+                if (leaderboard.size() < source.size()) {
+                    source = leaderboard;
+                }
+            }
+
+            if (requested.isEmpty()) {
+                return top(ranking, count, filmId -> true);
+            }
+
+            return top(source, count, filmId -> partitions.get(filmId).matches(genreId, year, mpaId));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Топ среди фильмов, прошедших фильтр: рейтинг просматривается сверху, пока не наберется count
+    public List<Integer> getTop(int count, IntPredicate filter) {
+        lock.readLock().lock();
+        try {
+            return top(ranking, count, filter);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<Integer> top(TreeSet<Long> source, int count, IntPredicate filter) {
+        List<Integer> top = new ArrayList<>(Math.max(0, Math.min(count, source.size())));
+        Iterator<Long> iterator = source.iterator();
+
+        while (top.size() < count && iterator.hasNext()) {
+            int filmId = filmIdOf(iterator.next());
+
+            if (filter.test(filmId)) {
+                top.add(filmId);
+            }
+        }
+
+        return top;
+    }
+
+    private static Partitions partitionsOf(Film film) {
+        long genreMask = 0;
+
+        if (film.getGenres() != null) {
+            for (FilmGenre genre : film.getGenres()) {
+                genreMask |= 1L << (genre.getId() - 1);
+            }
+        }
+
+        return new Partitions(genreMask, film.getReleaseDate().getYear(), film.getMpa().getId());
+    }
+
+    private void put(int filmId, int rate, Partitions filmPartitions) {
+        Integer oldRate = rates.put(filmId, rate);
+        Partitions oldPartitions = partitions.put(filmId, filmPartitions);
+
+        if (oldRate != null) {
+            long oldKey = key(filmId, oldRate);
+            ranking.remove(oldKey);
+            removeFromLeaderboards(oldKey, oldPartitions);
+        }
+
+        long newKey = key(filmId, rate);
+        ranking.add(newKey);
+        addToLeaderboards(newKey, filmPartitions);
+    }
+
+    private void addToLeaderboards(long key, Partitions filmPartitions) {
+        for (long mask = filmPartitions.genreMask; mask != 0; mask &= mask - 1) {
+            byGenre.computeIfAbsent(Long.numberOfTrailingZeros(mask) + 1, id -> new TreeSet<>()).add(key);
+        }
+
+        byYear.computeIfAbsent(filmPartitions.year, id -> new TreeSet<>()).add(key);
+        byMpa.computeIfAbsent(filmPartitions.mpaId, id -> new TreeSet<>()).add(key);
+    }
+
+    private void removeFromLeaderboards(long key, Partitions filmPartitions) {
+        for (long mask = filmPartitions.genreMask; mask != 0; mask &= mask - 1) {
+            remove(byGenre, Long.numberOfTrailingZeros(mask) + 1, key);
+        }
+
+        remove(byYear, filmPartitions.year, key);
+        remove(byMpa, filmPartitions.mpaId, key);
+    }
+
+    // Пустые рейтинги удаляются, чтобы запрос по ним сразу получал пустой ответ
+    private static void remove(Map<Integer, TreeSet<Long>> leaderboards, int partition, long key) {
+        TreeSet<Long> leaderboard = leaderboards.get(partition);
+        leaderboard.remove(key);
+
+        if (leaderboard.isEmpty()) {
+            leaderboards.remove(partition);
+        }
+    }
+
+    private static long key(int filmId, int rate) {
+        return (-(long) rate << 32) | (filmId & 0xFFFFFFFFL);
+    }
+
+    private static int filmIdOf(long key) {
+        return (int) key;
+    }
+
+    // Жанры, год выпуска и МРА фильма - в каких рейтингах он состоит
+    private static class Partitions {
+        private final long genreMask;
+        private final int year;
+        private final int mpaId;
+
+        private Partitions(long genreMask, int year, int mpaId) {
+            this.genreMask = genreMask;
+            this.year = year;
+            this.mpaId = mpaId;
+        }
+
+        private boolean matches(Integer genreId, Integer year, Integer mpaId) {
+            return (genreId == null || genreId > 0 && genreId <= GENRES_LIMIT && (genreMask & 1L << (genreId - 1)) != 0)
+                    && (year == null || this.year == year)
+                    && (mpaId == null || this.mpaId == mpaId);
+        }
+    }
+}
@@ -0,0 +1,307 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Поиск фильмов по жанрам, МРА, годам и тексту в памяти. На каждый жанр и каждый МРА - битовая карта
+ * по id фильмов, так что фильтры - это пересечения карт, а счетчики фасетов - мощности пересечений,
+ * без дополнительных запросов. Год проверяется по массиву атрибутов, индексированному id фильма.
+ * Текст ищется в FilmTextIndex, порядок по популярности берется из FilmPopularityIndex.
+ */
+@Component
+public class FilmSearchIndex {
+    private static final int GENRES_LIMIT = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmTextIndex textIndex;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final BitSet films = new BitSet();
+    private final BitSet[] byGenre = new BitSet[GENRES_LIMIT];
+    private final Map<Integer, BitSet> byMpa = new HashMap<>();
+    private long[] genreMasks = new long[0];
+    private int[] mpaIds = new int[0];
+    private int[] releaseYears = new int[0];
+    private long[] releaseDays = new long[0];
+
+    @Autowired
+    public FilmSearchIndex(JdbcTemplate jdbcTemplate, FilmPopularityIndex popularityIndex, FilmTextIndex textIndex) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.textIndex = textIndex;
+    }
+
+    // Строится при старте, до того как приложение начнет принимать запросы
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT film_id, release_date, mpa_id, genre_mask FROM films";
+
+        lock.writeLock().lock();
+        try {
+            films.clear();
+            Arrays.fill(byGenre, null);
+            byMpa.clear();
+            jdbcTemplate.query(sqlQuery, rs -> {
+                put(rs.getInt("film_id"),
+                        Objects.requireNonNull(rs.getDate("release_date")).toLocalDate(),
+                        rs.getInt("mpa_id"),
+                        rs.getLong("genre_mask"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Новый фильм или новая версия существующего; жанры берутся из самого фильма
+    public void put(int filmId, Film film) {
+        long genreMask = 0;
+
+        if (film.getGenres() != null) {
+            for (FilmGenre genre : film.getGenres()) {
+                genreMask |= 1L << (genre.getId() - 1);
+            }
+        }
+
+        lock.writeLock().lock();
+        try {
+            put(filmId, film.getReleaseDate(), film.getMpa().getId(), genreMask);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public Hits search(FilmSearchQuery query) {
+        BitSet result;
+        int total;
+        List<Integer> page = null;
+        int[] genreCounts = new int[GENRES_LIMIT];
+        Map<Integer, Integer> mpaCounts = new HashMap<>();
+        // У текстового индекса своя блокировка, поэтому он опрашивается до захвата своей
+        Map<Integer, Double> relevance = query.getText() == null || query.getText().isBlank()
+                ? null
+                : textIndex.match(query.getText());
+
+        lock.readLock().lock();
+        try {
+            BitSet withGenres = matchYearsAndText(query.getYearFrom(), query.getYearTo(), relevance);
+
+            if (query.getGenres() != null) {
+                for (Integer genreId : query.getGenres()) {
+                    withGenres.and(genreBits(genreId));
+                }
+            }
+
+            result = (BitSet) withGenres.clone();
+
+            if (query.getMpa() != null && !query.getMpa().isEmpty()) {
+                BitSet anyMpa = new BitSet();
+
+                for (Integer mpaId : query.getMpa()) {
+                    anyMpa.or(byMpa.getOrDefault(mpaId, new BitSet()));
+                }
+
+                result.and(anyMpa);
+            }
+
+            // Жанры фильма складываются по И, поэтому их фасеты считаются по итоговой выборке,
+            // а МРА у фильма один и выбираются по ИЛИ - их фасеты считаются без фильтра по МРА
+            for (int genre = 1; genre < GENRES_LIMIT; genre++) {
+                if (byGenre[genre] != null) {
+                    genreCounts[genre] = intersectionSize(result, byGenre[genre]);
+                }
+            }
+
+            byMpa.forEach((mpaId, bits) -> mpaCounts.put(mpaId, intersectionSize(withGenres, bits)));
+            total = result.cardinality();
+
+            if (query.getSort() == FilmSearchQuery.Sort.DATE) {
+                page = pageByDate(result, query.getOffset(), query.getLimit());
+            } else if (query.getSort() == FilmSearchQuery.Sort.RELEVANCE && relevance != null) {
+                page = pageByRelevance(result, relevance, query.getOffset(), query.getLimit());
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // У популярности свой индекс со своей блокировкой, result к этому моменту - независимая копия
+        if (page == null) {
+            page = pageByPopularity(result, query.getOffset(), query.getLimit());
+        }
+
+        return new Hits(total, page, genreCounts, mpaCounts);
+    }
+
+    private void put(int filmId, LocalDate releaseDate, int mpaId, long genreMask) {
+        ensureCapacity(filmId + 1);
+
+        if (films.get(filmId)) {
+            clearGenres(filmId, genreMasks[filmId]);
+            byMpa.get(mpaIds[filmId]).clear(filmId);
+        }
+
+        films.set(filmId);
+        genreMasks[filmId] = genreMask;
+        mpaIds[filmId] = mpaId;
+        releaseYears[filmId] = releaseDate.getYear();
+        releaseDays[filmId] = releaseDate.toEpochDay();
+
+        for (long mask = genreMask; mask != 0; mask &= mask - 1) {
+            int genre = Long.numberOfTrailingZeros(mask) + 1;
+
+            if (byGenre[genre] == null) {
+                byGenre[genre] = new BitSet();
+            }
+
+            byGenre[genre].set(filmId);
+        }
+
+        byMpa.computeIfAbsent(mpaId, id -> new BitSet()).set(filmId);
+    }
+
+    private void clearGenres(int filmId, long genreMask) {
+        for (long mask = genreMask; mask != 0; mask &= mask - 1) {
+            byGenre[Long.numberOfTrailingZeros(mask) + 1].clear(filmId);
+        }
+    }
+
+    private BitSet matchYearsAndText(Integer from, Integer to, Map<Integer, Double> relevance) {
+        BitSet matched;
+
+        if (relevance == null) {
+            matched = (BitSet) films.clone();
+        } else {
+            matched = new BitSet();
+            relevance.keySet().forEach(matched::set);
+            matched.and(films);
+        }
+
+        if (from == null && to == null) {
+            return matched;
+        }
+
+        int yearFrom = from == null ? Integer.MIN_VALUE : from;
+        int yearTo = to == null ? Integer.MAX_VALUE : to;
+
+        for (int id = matched.nextSetBit(0); id >= 0; id = matched.nextSetBit(id + 1)) {
+            if (releaseYears[id] < yearFrom || releaseYears[id] > yearTo) {
+                matched.clear(id);
+            }
+        }
+
+        return matched;
+    }
+
+    private BitSet genreBits(int genreId) {
+        return genreId > 0 && genreId < GENRES_LIMIT && byGenre[genreId] != null ? byGenre[genreId] : new BitSet();
+    }
+
+    // Первые offset + limit самых популярных из выборки, с отброшенными первыми offset
+    private List<Integer> pageByPopularity(BitSet matched, int offset, int limit) {
+        List<Integer> top = popularityIndex.getTop((int) Math.min(Integer.MAX_VALUE, (long) offset + limit),
+                matched::get);
+
+        return new ArrayList<>(top.subList(Math.min(offset, top.size()), top.size()));
+    }
+
+    // Сначала новые фильмы, при одной дате - по id
+    private List<Integer> pageByDate(BitSet matched, int offset, int limit) {
+        long[] keys = new long[matched.cardinality()];
+        int size = 0;
+
+        for (int id = matched.nextSetBit(0); id >= 0; id = matched.nextSetBit(id + 1)) {
+            keys[size++] = (-releaseDays[id] << 32) | id;
+        }
+
+        Arrays.sort(keys);
+        List<Integer> page = new ArrayList<>();
+
+        for (int i = offset; i < keys.length && page.size() < limit; i++) {
+            page.add((int) keys[i]);
+        }
+
+        return page;
+    }
+
+    // Сначала более релевантные, при равной релевантности - по id
+    private List<Integer> pageByRelevance(BitSet matched, Map<Integer, Double> relevance, int offset, int limit) {
+        List<Integer> ids = new ArrayList<>(matched.cardinality());
+
+        for (int id = matched.nextSetBit(0); id >= 0; id = matched.nextSetBit(id + 1)) {
+            ids.add(id);
+        }
+
+        ids.sort(Comparator.<Integer>comparingDouble(relevance::get).reversed().thenComparing(Integer::intValue));
+
+        int from = Math.min(offset, ids.size());
+
+        return new ArrayList<>(ids.subList(from, (int) Math.min((long) from + limit, ids.size())));
+    }
+
+    private void ensureCapacity(int size) {
+        if (size <= mpaIds.length) {
+            return;
+        }
+
+        int capacity = Math.max(size, mpaIds.length + (mpaIds.length >> 1));
+        genreMasks = Arrays.copyOf(genreMasks, capacity);
+        mpaIds = Arrays.copyOf(mpaIds, capacity);
+        releaseYears = Arrays.copyOf(releaseYears, capacity);
+        releaseDays = Arrays.copyOf(releaseDays, capacity);
+    }
+
+    private static int intersectionSize(BitSet first, BitSet second) {
+        BitSet intersection = (BitSet) first.clone();
+        intersection.and(second);
+
+        return intersection.cardinality();
+    }
+
+    // Страница id в нужном порядке и счетчики фасетов
+    public static class Hits {
+        private final int total;
+        private final List<Integer> page;
+        private final int[] genreCounts;
+        private final Map<Integer, Integer> mpaCounts;
+
+        private Hits(int total, List<Integer> page, int[] genreCounts, Map<Integer, Integer> mpaCounts) {
+            this.total = total;
+            this.page = page;
+            this.genreCounts = genreCounts;
+            this.mpaCounts = mpaCounts;
+        }
+
+        public int getTotal() {
+            return total;
+        }
+
+        public List<Integer> getPage() {
+            return page;
+        }
+
+        public int getGenreCount(int genreId) {
+            return genreId > 0 && genreId < GENRES_LIMIT ? genreCounts[genreId] : 0;
+        }
+
+        public int getMpaCount(int mpaId) {
+            return mpaCounts.getOrDefault(mpaId, 0);
+        }
+    }
+}
@@ -0,0 +1,313 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Полнотекстовый индекс по названию и описанию фильмов в памяти. Инвертированный индекс: слово -> фильмы,
+ * в которых оно встречается, с отметкой, в названии или в описании. Словарь отсортирован, поэтому
+ * слова с заданным префиксом - это его поддиапазон. Для опечаток хранится словарь удалений: каждое
+ * слово под всеми вариантами без одной буквы, так что слова на расстоянии 1 находятся без перебора словаря.
+ */
+@Component
+public class FilmTextIndex {
+    private static final int NAME = 1;
+    private static final int DESCRIPTION = 2;
+    private static final double NAME_WEIGHT = 2.0;
+    private static final double EXACT = 1.0;
+    private static final double PREFIX = 0.7;
+    private static final double TYPO = 0.5;
+    private static final int MIN_PREFIX_LENGTH = 2;
+    private static final int MIN_TYPO_LENGTH = 4;
+    // Короткий префикс вроде "th" раскрывается в слишком много слов
+    private static final int MAX_EXPANSIONS = 64;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FilmPopularityIndex popularityIndex;
+    private final double rateBoost;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TreeMap<String, Map<Integer, Integer>> postings = new TreeMap<>();
+    private final Map<String, Set<String>> deletions = new HashMap<>();
+    private final Map<Integer, Map<String, Integer>> filmTerms = new HashMap<>();
+
+    @Autowired
+    public FilmTextIndex(JdbcTemplate jdbcTemplate,
+                         FilmPopularityIndex popularityIndex,
+                         @Value("${filmorate.search.rate-boost:0.1}") double rateBoost) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.popularityIndex = popularityIndex;
+        this.rateBoost = rateBoost;
+    }
+
+    // Строится при старте, до того как приложение начнет принимать запросы
+    @PostConstruct
+    public void init() {
+        rebuild();
+    }
+
+    // Перестраивает индекс по базе, возвращает число проиндексированных фильмов
+    public int rebuild() {
+        String sqlQuery = "SELECT film_id, name, description FROM films";
+
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            deletions.clear();
+            filmTerms.clear();
+            jdbcTemplate.query(sqlQuery, rs -> {
+                index(rs.getInt("film_id"), rs.getString("name"), rs.getString("description"));
+            });
+
+            return filmTerms.size();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Новый фильм или новая версия существующего
+    public void put(int filmId, String name, String description) {
+        lock.writeLock().lock();
+        try {
+            remove(filmId);
+            index(filmId, name, description);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Фильмы, в которых нашлось каждое слово запроса, с релевантностью. Слово запроса совпадает со словом
+     * фильма точно, как префикс или с одной опечаткой; вес совпадения умножается на idf слова и удваивается
+     * для названия. Итог поднимается популярностью фильма: множитель 1 + rateBoost * ln(1 + rate).
+     */
+    public Map<Integer, Double> match(String query) {
+        List<String> tokens = tokenize(query);
+        Map<Integer, Double> scores = new HashMap<>();
+
+        if (tokens.isEmpty()) {
+            return scores;
+        }
+
+        lock.readLock().lock();
+        try {
+            for (int i = 0; i < tokens.size(); i++) {
+                Map<Integer, Double> tokenScores = score(tokens.get(i));
+
+                if (i == 0) {
+                    scores = tokenScores;
+                } else {
+                    Map<Integer, Double> both = new HashMap<>();
+
+                    scores.forEach((filmId, score) -> {
+                        Double tokenScore = tokenScores.get(filmId);
+
+                        if (tokenScore != null) {
+                            both.put(filmId, score + tokenScore);
+                        }
+                    });
+                    scores = both;
+                }
+
+                if (scores.isEmpty()) {
+                    return scores;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        if (rateBoost > 0) {
+            scores.replaceAll((filmId, score) ->
+                    score * (1 + rateBoost * Math.log1p(Math.max(0, popularityIndex.getRate(filmId)))));
+        }
+
+        return scores;
+    }
+
+    // Слова - последовательности букв и цифр в нижнем регистре, ё приравнивается к е
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+
+        if (text == null) {
+            return tokens;
+        }
+
+        String normalized = text.toLowerCase(Locale.ROOT).replace('ё', 'е');
+        int start = -1;
+
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean letter = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+
+            if (letter && start < 0) {
+                start = i;
+            } else if (!letter && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+
+        return tokens;
+    }
+
+    private Map<Integer, Double> score(String token) {
+        Map<Integer, Double> scores = new HashMap<>();
+
+        expand(token).forEach((term, weight) -> {
+            Map<Integer, Integer> films = postings.get(term);
+            double idf = Math.log(1 + (double) filmTerms.size() / films.size());
+
+            films.forEach((filmId, fields) -> {
+                double score = weight * idf * ((fields & NAME) != 0 ? NAME_WEIGHT : 1);
+                scores.merge(filmId, score, Math::max);
+            });
+        });
+
+        return scores;
+    }
+
+    // Слова словаря, подходящие под слово запроса, с весом совпадения; у слова берется лучший из весов
+    private Map<String, Double> expand(String token) {
+        Map<String, Double> terms = new HashMap<>();
+
+        if (postings.containsKey(token)) {
+            terms.put(token, EXACT);
+        }
+
+        if (token.length() >= MIN_PREFIX_LENGTH) {
+            for (String term : postings.subMap(token, false, token + Character.MAX_VALUE, false).keySet()) {
+                if (terms.size() >= MAX_EXPANSIONS) {
+                    break;
+                }
+
+                terms.putIfAbsent(term, PREFIX);
+            }
+        }
+
+        if (token.length() >= MIN_TYPO_LENGTH) {
+            Set<String> candidates = new HashSet<>(deletions.getOrDefault(token, Set.of()));
+
+            for (String deleted : deletionsOf(token)) {
+                if (postings.containsKey(deleted)) {
+                    candidates.add(deleted);
+                }
+
+                candidates.addAll(deletions.getOrDefault(deleted, Set.of()));
+            }
+
+            for (String candidate : candidates) {
+                if (!terms.containsKey(candidate) && distance(token, candidate) <= 1) {
+                    terms.put(candidate, TYPO);
+                }
+            }
+        }
+
+        return terms;
+    }
+
+    private void index(int filmId, String name, String description) {
+        Map<String, Integer> terms = new HashMap<>();
+
+        for (String term : tokenize(name)) {
+            terms.merge(term, NAME, (a, b) -> a | b);
+        }
+
+        for (String term : tokenize(description)) {
+            terms.merge(term, DESCRIPTION, (a, b) -> a | b);
+        }
+
+        terms.forEach((term, fields) -> {
+            Map<Integer, Integer> films = postings.get(term);
+
+            if (films == null) {
+                films = new HashMap<>();
+                postings.put(term, films);
+
+                if (term.length() >= MIN_TYPO_LENGTH - 1) {
+                    for (String deleted : deletionsOf(term)) {
+                        deletions.computeIfAbsent(deleted, key -> new HashSet<>()).add(term);
+                    }
+                }
+            }
+
+            films.put(filmId, fields);
+        });
+
+        filmTerms.put(filmId, terms);
+    }
+
+    private void remove(int filmId) {
+        Map<String, Integer> terms = filmTerms.remove(filmId);
+
+        if (terms == null) {
+            return;
+        }
+
+        for (String term : terms.keySet()) {
+            Map<Integer, Integer> films = postings.get(term);
+            films.remove(filmId);
+
+            if (films.isEmpty()) {
+                postings.remove(term);
+
+                for (String deleted : deletionsOf(term)) {
+                    Set<String> sources = deletions.get(deleted);
+
+                    if (sources != null && sources.remove(term) && sources.isEmpty()) {
+                        deletions.remove(deleted);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Set<String> deletionsOf(String term) {
+        Set<String> deleted = new HashSet<>();
+
+        for (int i = 0; i < term.length(); i++) {
+            deleted.add(term.substring(0, i) + term.substring(i + 1));
+        }
+
+        return deleted;
+    }
+
+    // Расстояние Дамерау-Левенштейна в варианте OSA: вставка, удаление, замена и перестановка соседних букв
+    private static int distance(String first, String second) {
+        int[][] d = new int[first.length() + 1][second.length() + 1];
+
+        for (int i = 0; i <= first.length(); i++) {
+            d[i][0] = i;
+        }
+
+        for (int j = 0; j <= second.length(); j++) {
+            d[0][j] = j;
+        }
+
+        for (int i = 1; i <= first.length(); i++) {
+            for (int j = 1; j <= second.length(); j++) {
+                int cost = first.charAt(i - 1) == second.charAt(j - 1) ? 0 : 1;
+                d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+
+                if (i > 1 && j > 1 && first.charAt(i - 1) == second.charAt(j - 2)
+                        && first.charAt(i - 2) == second.charAt(j - 1)) {
+                    d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+                }
+            }
+        }
+
+        return d[first.length()][second.length()];
+    }
+}
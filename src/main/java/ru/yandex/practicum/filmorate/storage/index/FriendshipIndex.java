@@ -0,0 +1,236 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Arrays;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * Граф user_friends в памяти в формате CSR: друзья пользователя u лежат в targets[offsets[u], offsets[u + 1])
+ * по возрастанию id. Изменения не перестраивают массивы: у пользователя, чьи друзья поменялись,
+ * появляется собственный отсортированный массив в overrides. Когда таких пользователей набирается
+ * COMPACT_THRESHOLD, все сливается обратно в CSR. Везде примитивные int, без упаковки.
+ */
+@Component
+public class FriendshipIndex {
+    private static final int COMPACT_THRESHOLD = 4096;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int maxEdges;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private int[] offsets = new int[1];
+    private int[] targets = new int[0];
+    private int[][] overrides = new int[0][];
+    private int overridden;
+
+    @Autowired
+    public FriendshipIndex(JdbcTemplate jdbcTemplate,
+                           @Value("${filmorate.friends.suggestions.max-edges:1000000}") int maxEdges) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.maxEdges = maxEdges;
+    }
+
+    // Строится при старте, до того как приложение начнет принимать запросы
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT user_id, friend_id FROM user_friends ORDER BY user_id, friend_id";
+        int[][] edges = {new int[1024], new int[1024]};
+        int[] size = {0};
+
+        lock.writeLock().lock();
+        try {
+            jdbcTemplate.query(sqlQuery, rs -> {
+                if (size[0] == edges[0].length) {
+                    edges[0] = Arrays.copyOf(edges[0], size[0] * 2);
+                    edges[1] = Arrays.copyOf(edges[1], size[0] * 2);
+                }
+
+                edges[0][size[0]] = rs.getInt("user_id");
+                edges[1][size[0]] = rs.getInt("friend_id");
+                size[0]++;
+            });
+
+            int usersCount = size[0] == 0 ? 0 : edges[0][size[0] - 1] + 1;
+            offsets = new int[usersCount + 1];
+
+            for (int i = 0; i < size[0]; i++) {
+                offsets[edges[0][i] + 1]++;
+            }
+
+            for (int user = 0; user < usersCount; user++) {
+                offsets[user + 1] += offsets[user];
+            }
+
+            targets = Arrays.copyOf(edges[1], size[0]);
+            overrides = new int[usersCount][];
+            overridden = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Повторное добавление и удаление несуществующей дружбы ничего не меняют
+    public void addFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            ensureCapacity(userId + 1);
+            int[] row = row(userId);
+            int position = Arrays.binarySearch(row, friendId);
+
+            if (position < 0) {
+                int insert = -position - 1;
+                int[] changed = new int[row.length + 1];
+                System.arraycopy(row, 0, changed, 0, insert);
+                changed[insert] = friendId;
+                System.arraycopy(row, insert, changed, insert + 1, row.length - insert);
+                override(userId, changed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void deleteFriend(int userId, int friendId) {
+        lock.writeLock().lock();
+        try {
+            if (userId >= overrides.length) {
+                return;
+            }
+
+            int[] row = row(userId);
+            int position = Arrays.binarySearch(row, friendId);
+
+            if (position >= 0) {
+                int[] changed = new int[row.length - 1];
+                System.arraycopy(row, 0, changed, 0, position);
+                System.arraycopy(row, position + 1, changed, position, row.length - position - 1);
+                override(userId, changed);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /*
+     * Друзья друзей, которые еще не в друзьях у пользователя, по числу общих друзей (при равенстве - по id).
+     * Обход ограничен maxEdges ребрами второго уровня: у пользователя с огромным кругом друзей
+     * результат строится по первым из них, зато время ответа предсказуемо.
+     */
+    public int[] suggest(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            if (userId < 0 || userId >= overrides.length || count <= 0) {
+                return new int[0];
+            }
+
+            IntCounter counter = new IntCounter();
+            int[] friends = rowArray(userId);
+            int from = rowFrom(userId);
+            int to = rowTo(userId);
+            long visited = 0;
+
+            traversal:
+            for (int i = from; i < to; i++) {
+                int friend = friends[i];
+
+                if (friend >= overrides.length) {
+                    continue;
+                }
+
+                int[] candidates = rowArray(friend);
+
+                for (int j = rowFrom(friend); j < rowTo(friend); j++) {
+                    int candidate = candidates[j];
+
+                    if (candidate != userId && Arrays.binarySearch(friends, from, to, candidate) < 0) {
+                        counter.increment(candidate);
+                    }
+
+                    if (++visited >= maxEdges) {
+                        break traversal;
+                    }
+                }
+            }
+
+            long[] ranked = counter.ranked();
+            int[] suggested = new int[Math.min(count, ranked.length)];
+
+            for (int i = 0; i < suggested.length; i++) {
+                suggested[i] = IntCounter.idOf(ranked[i]);
+            }
+
+            return suggested;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void override(int userId, int[] row) {
+        if (overrides[userId] == null) {
+            overridden++;
+        }
+
+        overrides[userId] = row;
+
+        if (overridden >= COMPACT_THRESHOLD) {
+            compact();
+        }
+    }
+
+    private void compact() {
+        int usersCount = overrides.length;
+        int[] newOffsets = new int[usersCount + 1];
+
+        for (int user = 0; user < usersCount; user++) {
+            newOffsets[user + 1] = newOffsets[user] + rowTo(user) - rowFrom(user);
+        }
+
+        int[] newTargets = new int[newOffsets[usersCount]];
+
+        for (int user = 0; user < usersCount; user++) {
+            System.arraycopy(rowArray(user), rowFrom(user), newTargets, newOffsets[user], rowTo(user) - rowFrom(user));
+        }
+
+        offsets = newOffsets;
+        targets = newTargets;
+        overrides = new int[usersCount][];
+        overridden = 0;
+    }
+
+    // Новые пользователи получают пустые строки в конце CSR
+    private void ensureCapacity(int usersCount) {
+        int oldCount = overrides.length;
+
+        if (usersCount <= oldCount) {
+            return;
+        }
+
+        int newCount = Math.max(usersCount, oldCount + (oldCount >> 1));
+        offsets = Arrays.copyOf(offsets, newCount + 1);
+        Arrays.fill(offsets, oldCount + 1, newCount + 1, offsets[oldCount]);
+        overrides = Arrays.copyOf(overrides, newCount);
+    }
+
+    private int[] row(int userId) {
+        int[] override = overrides[userId];
+
+        return override != null ? override : Arrays.copyOfRange(targets, offsets[userId], offsets[userId + 1]);
+    }
+
+    private int[] rowArray(int userId) {
+        return overrides[userId] != null ? overrides[userId] : targets;
+    }
+
+    private int rowFrom(int userId) {
+        return overrides[userId] != null ? 0 : offsets[userId];
+    }
+
+    private int rowTo(int userId) {
+        return overrides[userId] != null ? overrides[userId].length : offsets[userId + 1];
+    }
+}
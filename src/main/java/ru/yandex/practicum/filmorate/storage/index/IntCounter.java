@@ -0,0 +1,108 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import java.util.Arrays;
+
+/*
+ * Счетчики одного запроса по id: хеш-таблица int -> int с открытой адресацией, без упаковки ключей и значений.
+ * Память - по числу разных id, а не по наибольшему из них. id должны быть неотрицательными.
+ */
+class IntCounter {
+    private static final int EMPTY = -1;
+
+    private int[] ids = newIds(256);
+    private int[] counts = new int[256];
+    private int size;
+
+    void increment(int id) {
+        add(id, 1);
+    }
+
+    void add(int id, int delta) {
+        int slot = slotOf(ids, id);
+
+        if (ids[slot] == id) {
+            counts[slot] += delta;
+            return;
+        }
+
+        ids[slot] = id;
+        counts[slot] = delta;
+
+        if (++size * 2 > ids.length) {
+            grow();
+        }
+    }
+
+    void addAll(IntCounter other) {
+        for (int slot = 0; slot < other.ids.length; slot++) {
+            if (other.ids[slot] != EMPTY) {
+                add(other.ids[slot], other.counts[slot]);
+            }
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /*
+     * Ключ устроен как в FilmPopularityIndex: по возрастанию long - счет по убыванию, затем id по возрастанию.
+     * Разбирается через idOf и countOf.
+     */
+    long[] ranked() {
+        long[] keys = new long[size];
+        int next = 0;
+
+        for (int slot = 0; slot < ids.length; slot++) {
+            if (ids[slot] != EMPTY) {
+                keys[next++] = (-(long) counts[slot] << 32) | (ids[slot] & 0xFFFFFFFFL);
+            }
+        }
+
+        Arrays.sort(keys);
+
+        return keys;
+    }
+
+    static int idOf(long key) {
+        return (int) key;
+    }
+
+    static int countOf(long key) {
+        return (int) -(key >> 32);
+    }
+
+    private void grow() {
+        int[] oldIds = ids;
+        int[] oldCounts = counts;
+        ids = newIds(oldIds.length * 2);
+        counts = new int[oldIds.length * 2];
+
+        for (int slot = 0; slot < oldIds.length; slot++) {
+            if (oldIds[slot] != EMPTY) {
+                int newSlot = slotOf(ids, oldIds[slot]);
+                ids[newSlot] = oldIds[slot];
+                counts[newSlot] = oldCounts[slot];
+            }
+        }
+    }
+
+    private static int slotOf(int[] ids, int id) {
+        int mask = ids.length - 1;
+        int hash = id * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+
+        while (ids[slot] != EMPTY && ids[slot] != id) {
+            slot = (slot + 1) & mask;
+        }
+
+        return slot;
+    }
+
+    private static int[] newIds(int capacity) {
+        int[] ids = new int[capacity];
+        Arrays.fill(ids, EMPTY);
+
+        return ids;
+    }
+}
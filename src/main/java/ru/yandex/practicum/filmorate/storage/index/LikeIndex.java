@@ -0,0 +1,256 @@
+package ru.yandex.practicum.filmorate.storage.index;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+ * users_like в памяти в обе стороны: фильмы каждого пользователя и пользователи, лайкнувшие каждый фильм.
+ * Строки лежат в массивах по id (id из базы идут подряд) и отсортированы: лайк и дизлайк находят место
+ * двоичным поиском и сдвигают хвост строки. Везде примитивные int, без упаковки.
+ * Рекомендации: сначала соседи - пользователи с наибольшим числом общих лайков, потом фильмы соседей,
+ * которых у пользователя еще нет, с весом по числу общих лайков соседа. Подсчет общих лайков - самая
+ * тяжелая часть, она делится между потоками по фильмам пользователя.
+ */
+@Component
+public class LikeIndex {
+    // Столько лайков поток просматривает сам, не деля работу дальше
+    private static final int SEQUENTIAL_THRESHOLD = 20_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int neighborsCount;
+    private final ForkJoinPool pool;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private SortedIntList[] filmsByUser = new SortedIntList[0];
+    private SortedIntList[] usersByFilm = new SortedIntList[0];
+
+    @Autowired
+    public LikeIndex(JdbcTemplate jdbcTemplate,
+                     @Value("${filmorate.recommendations.neighbors:50}") int neighborsCount,
+                     @Value("${filmorate.recommendations.parallelism:0}") int parallelism) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.neighborsCount = neighborsCount;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    // Строится при старте, до того как приложение начнет принимать запросы
+    @PostConstruct
+    public void rebuild() {
+        String sqlQuery = "SELECT user_id, film_id FROM users_like";
+
+        lock.writeLock().lock();
+        try {
+            filmsByUser = new SortedIntList[0];
+            usersByFilm = new SortedIntList[0];
+            jdbcTemplate.query(sqlQuery, rs -> {
+                add(rs.getInt("film_id"), rs.getInt("user_id"));
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        pool.shutdown();
+    }
+
+    // Вызывается только для лайков, которые действительно добавились; повтор строку не меняет
+    public void like(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            add(filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void unlike(int filmId, int userId) {
+        lock.writeLock().lock();
+        try {
+            remove(filmsByUser, userId, filmId);
+            remove(usersByFilm, filmId, userId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public List<Integer> recommend(int userId, int count) {
+        lock.readLock().lock();
+        try {
+            SortedIntList liked = row(filmsByUser, userId);
+
+            if (liked == null || count <= 0) {
+                return new ArrayList<>();
+            }
+
+            long[] neighbors = pool.invoke(new OverlapTask(userId, liked.values, 0, liked.size)).ranked();
+            IntCounter scores = new IntCounter();
+
+            for (int i = 0; i < Math.min(neighborsCount, neighbors.length); i++) {
+                SortedIntList films = filmsByUser[IntCounter.idOf(neighbors[i])];
+                int overlap = IntCounter.countOf(neighbors[i]);
+
+                for (int j = 0; j < films.size; j++) {
+                    if (!liked.contains(films.values[j])) {
+                        scores.add(films.values[j], overlap);
+                    }
+                }
+            }
+
+            long[] ranked = scores.ranked();
+            List<Integer> recommended = new ArrayList<>(Math.min(count, ranked.length));
+
+            for (int i = 0; i < Math.min(count, ranked.length); i++) {
+                recommended.add(IntCounter.idOf(ranked[i]));
+            }
+
+            return recommended;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void add(int filmId, int userId) {
+        filmsByUser = withRow(filmsByUser, userId);
+        usersByFilm = withRow(usersByFilm, filmId);
+        filmsByUser[userId].add(filmId);
+        usersByFilm[filmId].add(userId);
+    }
+
+    // Массив строк растет в полтора раза, как в FriendshipIndex
+    private static SortedIntList[] withRow(SortedIntList[] rows, int id) {
+        if (id >= rows.length) {
+            rows = Arrays.copyOf(rows, Math.max(id + 1, rows.length + (rows.length >> 1)));
+        }
+
+        if (rows[id] == null) {
+            rows[id] = new SortedIntList();
+        }
+
+        return rows;
+    }
+
+    private static void remove(SortedIntList[] rows, int id, int value) {
+        SortedIntList row = row(rows, id);
+
+        if (row != null && row.remove(value) && row.size == 0) {
+            rows[id] = null;
+        }
+    }
+
+    private static SortedIntList row(SortedIntList[] rows, int id) {
+        return id >= 0 && id < rows.length ? rows[id] : null;
+    }
+
+    // Число общих лайков с пользователем для всех, кто лайкал фильмы films[from, to)
+    private class OverlapTask extends RecursiveTask<IntCounter> {
+        private final int userId;
+        private final int[] films;
+        private final int from;
+        private final int to;
+
+        private OverlapTask(int userId, int[] films, int from, int to) {
+            this.userId = userId;
+            this.films = films;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected IntCounter compute() {
+            long work = 0;
+
+            for (int i = from; i < to; i++) {
+                work += usersByFilm[films[i]].size;
+            }
+
+            if (to - from == 1 || work <= SEQUENTIAL_THRESHOLD) {
+                return countOverlaps();
+            }
+
+            int middle = (from + to) >>> 1;
+            OverlapTask left = new OverlapTask(userId, films, from, middle);
+            left.fork();
+            IntCounter right = new OverlapTask(userId, films, middle, to).compute();
+            IntCounter joined = left.join();
+
+            // Меньшая таблица вливается в большую
+            if (joined.size() >= right.size()) {
+                joined.addAll(right);
+                return joined;
+            }
+
+            right.addAll(joined);
+            return right;
+        }
+
+        private IntCounter countOverlaps() {
+            IntCounter overlaps = new IntCounter();
+
+            for (int i = from; i < to; i++) {
+                SortedIntList users = usersByFilm[films[i]];
+
+                for (int j = 0; j < users.size; j++) {
+                    if (users.values[j] != userId) {
+                        overlaps.increment(users.values[j]);
+                    }
+                }
+            }
+
+            return overlaps;
+        }
+    }
+
+    // Отсортированные значения в values[0, size): поиск двоичный, вставка и удаление сдвигают хвост
+    private static class SortedIntList {
+        private int[] values = new int[4];
+        private int size;
+
+        private void add(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+
+            if (position >= 0) {
+                return;
+            }
+
+            position = -position - 1;
+
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+
+            System.arraycopy(values, position, values, position + 1, size - position);
+            values[position] = value;
+            size++;
+        }
+
+        private boolean remove(int value) {
+            int position = Arrays.binarySearch(values, 0, size, value);
+
+            if (position < 0) {
+                return false;
+            }
+
+            System.arraycopy(values, position + 1, values, position, size - position - 1);
+            size--;
+
+            return true;
+        }
+
+        private boolean contains(int value) {
+            return Arrays.binarySearch(values, 0, size, value) >= 0;
+        }
+    }
+}
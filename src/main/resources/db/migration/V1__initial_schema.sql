@@ -1,14 +1,14 @@
-CREATE TABLE IF NOT EXISTS mpa(
+CREATE TABLE mpa(
 mpa_id integer PRIMARY KEY,
 title varchar(5)
 );
 
-CREATE TABLE IF NOT EXISTS genre(
+CREATE TABLE genre(
 genre_id integer PRIMARY KEY,
 name varchar(64) NOT NULL
 );
 
-CREATE TABLE IF NOT EXISTS films(
+CREATE TABLE films(
 film_id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 name varchar(64) NOT NULL,
 description varchar(200),
@@ -21,7 +21,7 @@ CONSTRAINT constr_release_date CHECK(release_date > '1895-12-28'),
 CONSTRAINT constr_title CHECK(name <> '')
 );
 
-CREATE TABLE IF NOT EXISTS users(
+CREATE TABLE users(
 id integer GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
 name varchar(64),
 email varchar(64) NOT NULL,
@@ -31,13 +31,13 @@ CONSTRAINT constr_unique UNIQUE(email, login),
 CONSTRAINT constr_not_blank CHECK(email <> '' AND login <> '')
 );
 
-CREATE TABLE IF NOT EXISTS users_like(
+CREATE TABLE users_like(
 film_id int REFERENCES films (film_id) ON DELETE CASCADE,
 user_id int REFERENCES users (id) ON DELETE CASCADE,
 CONSTRAINT film_user PRIMARY KEY(film_id, user_id)
 );
 
-CREATE TABLE IF NOT EXISTS user_friends(
+CREATE TABLE user_friends(
 user_id integer,
 friend_id integer,
 CONSTRAINT user_example_to_users FOREIGN KEY (user_id) REFERENCES users,
@@ -45,8 +45,14 @@ CONSTRAINT friend_example_to_users FOREIGN KEY (friend_id) REFERENCES users,
 PRIMARY KEY (user_id, friend_id)
 );
 
-CREATE TABLE IF NOT EXISTS films_genre(
+CREATE TABLE films_genre(
 film_id integer REFERENCES films(film_id),
 genre_id integer REFERENCES genre(genre_id),
 PRIMARY KEY(film_id, genre_id)
-);
\ No newline at end of file
+);
+
+MERGE INTO public.mpa (mpa_id, title)
+VALUES (1, 'G'), (2, 'PG'), (3, 'PG-13'), (4, 'R'), (5, 'NC-17');
+
+MERGE INTO public.genre (genre_id, name)
+VALUES (1, 'Комедия'), (2, 'Драма'), (3, 'Мультфильм'), (4, 'Триллер'), (5, 'Документальный'), (6, 'Боевик');
@@ -0,0 +1,11 @@
+-- Список популярных фильмов: сортировка по rate без полного прохода по таблице
+CREATE INDEX IF NOT EXISTS films_rate_idx ON films (rate DESC, film_id);
+
+-- Лайки пользователя (первичный ключ начинается с film_id и здесь не помогает)
+CREATE INDEX IF NOT EXISTS users_like_user_idx ON users_like (user_id, film_id);
+
+-- У кого пользователь в друзьях
+CREATE INDEX IF NOT EXISTS user_friends_friend_idx ON user_friends (friend_id, user_id);
+
+-- Фильмы жанра
+CREATE INDEX IF NOT EXISTS films_genre_genre_idx ON films_genre (genre_id, film_id);
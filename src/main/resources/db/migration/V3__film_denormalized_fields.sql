@@ -0,0 +1,12 @@
+-- likes_count - число строк users_like фильма, genre_mask - жанры фильма битами (жанр n - бит n - 1).
+-- Источник правды по-прежнему users_like и films_genre, пересчитывает поля FilmRepairJob
+ALTER TABLE films ADD COLUMN IF NOT EXISTS likes_count integer NOT NULL DEFAULT 0;
+ALTER TABLE films ADD COLUMN IF NOT EXISTS genre_mask bigint NOT NULL DEFAULT 0;
+
+-- В bigint помещается 63 жанра
+ALTER TABLE genre ADD CONSTRAINT genre_id_fits_mask CHECK (genre_id BETWEEN 1 AND 63);
+
+UPDATE films f SET
+likes_count = (SELECT COUNT(*) FROM users_like l WHERE l.film_id = f.film_id),
+genre_mask = (SELECT COALESCE(SUM(LSHIFT(CAST(1 AS bigint), g.genre_id - 1)), 0)
+              FROM films_genre g WHERE g.film_id = f.film_id);
@@ -0,0 +1,159 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.startsWith;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+// Пачки по две строки, чтобы граница пачки попадала внутрь коротких тестовых файлов
+@SpringBootTest(properties = "filmorate.bulk.chunk-size=2")
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class BulkImportTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    private final MockMvc mockMvc;
+    Film film;
+    User firstUser;
+    User secondUser;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .build());
+        firstUser = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+        secondUser = userService.create(User.builder()
+                .email("Second@yandex.ru")
+                .login("second")
+                .birthday(LocalDate.of(1999, 7, 10))
+                .build());
+    }
+
+    @Test
+    public void malformedAndInvalidRowsTest() throws Exception {
+        String ndjson = user("third") + "\n"
+                + "{\"email\": \"broken@yandex.ru\",\n"
+                + "{\"email\": \"not-an-email\", \"login\": \"fourth\", \"birthday\": \"1990-01-01\"}\n"
+                + "\n"
+                + user("fifth") + "\n";
+
+        mockMvc.perform(post("/users/bulk").content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value(startsWith("Некорректный JSON")))
+                .andExpect(jsonPath("$.errors[1].line").value(3))
+                .andExpect(jsonPath("$.errors[1].message").value(startsWith("email: ")));
+
+        assertThat(count("users")).isEqualTo(4);
+    }
+
+    @Test
+    public void duplicatesAreReportedTest() throws Exception {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+
+        // Первая строка уже есть в базе, третья повторяет вторую из той же пачки
+        String ndjson = like(film.getId(), firstUser.getId()) + "\n"
+                + like(film.getId(), secondUser.getId()) + "\n"
+                + like(film.getId(), secondUser.getId()) + "\n";
+
+        mockMvc.perform(post("/films/likes/bulk").content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(1))
+                .andExpect(jsonPath("$.errors.length()").value(2))
+                .andExpect(jsonPath("$.errors[0].line").value(1))
+                .andExpect(jsonPath("$.errors[0].message").value("Данный пользователь уже поставил лайк этому фильму"))
+                .andExpect(jsonPath("$.errors[1].line").value(3));
+
+        assertThat(count("users_like")).isEqualTo(2);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(2);
+    }
+
+    @Test
+    public void failedBatchFallsBackToRowsTest() throws Exception {
+        // Несуществующий фильм нарушает внешний ключ, и батч пачки падает целиком
+        String ndjson = like(film.getId(), firstUser.getId()) + "\n"
+                + like(9999, firstUser.getId()) + "\n"
+                + like(film.getId(), secondUser.getId()) + "\n";
+
+        mockMvc.perform(post("/films/likes/bulk").content(ndjson))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.errors.length()").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(2))
+                .andExpect(jsonPath("$.errors[0].message").value(containsString("Строку не удалось сохранить")));
+
+        assertThat(count("users_like")).isEqualTo(2);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(2);
+    }
+
+    @Test
+    public void rowsAcrossChunkBoundariesTest() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+
+        for (int i = 0; i < 5; i++) {
+            ndjson.append(film("Film " + i, i == 2 ? 999 : 1)).append('\n');
+        }
+
+        // Пять строк - три пачки, строка с неизвестным МРА отсеивается до записи и не ломает соседние пачки
+        mockMvc.perform(post("/films/bulk").content(ndjson.toString()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(4))
+                .andExpect(jsonPath("$.errors.length()").value(1))
+                .andExpect(jsonPath("$.errors[0].line").value(3));
+
+        assertThat(count("films")).isEqualTo(5);
+        assertThat(filmService.getFilms().stream().filter(added -> added.getName().equals("Film 4")).count())
+                .isEqualTo(1L);
+    }
+
+    private int count(String table) {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+    }
+
+    private static String user(String login) {
+        return "{\"email\": \"" + login + "@yandex.ru\", \"login\": \"" + login + "\", \"birthday\": \"1990-01-01\"}";
+    }
+
+    private static String like(int filmId, int userId) {
+        return "{\"filmId\": " + filmId + ", \"userId\": " + userId + "}";
+    }
+
+    private static String film(String name, int mpa) {
+        return "{\"name\": \"" + name + "\", \"description\": \"Bulk\", \"releaseDate\": \"2000-01-01\", "
+                + "\"duration\": 90, \"mpa\": {\"id\": " + mpa + "}}";
+    }
+}
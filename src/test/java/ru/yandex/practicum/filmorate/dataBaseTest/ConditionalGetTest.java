@@ -0,0 +1,125 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ConditionalGetTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+    Film film;
+    User firstUser;
+    User secondUser;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build()))
+                .build());
+        firstUser = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .name("One Firstov")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+        secondUser = userService.create(User.builder()
+                .email("Second@yandex.ru")
+                .login("second")
+                .name("Two Secondov")
+                .birthday(LocalDate.of(1985, 7, 1))
+                .build());
+    }
+
+    @Test
+    public void notModifiedFilmSkipsDataBaseTest() throws Exception {
+        String etag = etagOf("/films/" + film.getId());
+
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        DistributionSummary queries = meterRegistry.get("filmorate.http.sql.queries")
+                .tag("uri", "/films/{id}")
+                .summary();
+
+        // Второй запрос не сделал ни одного SQL-запроса
+        assertThat(queries.count()).isEqualTo(2L);
+        assertThat(queries.totalAmount()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void likeChangesFilmAndPopularEtagTest() throws Exception {
+        String filmEtag = etagOf("/films/" + film.getId());
+        String popularEtag = etagOf("/films/popular");
+
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+
+        assertThat(etagOf("/films/" + film.getId())).isNotEqualTo(filmEtag);
+        assertThat(etagOf("/films/popular")).isNotEqualTo(popularEtag);
+        mockMvc.perform(get("/films/" + film.getId()).header(HttpHeaders.IF_NONE_MATCH, filmEtag))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    public void friendsEtagTest() throws Exception {
+        String path = "/users/" + firstUser.getId() + "/friends";
+        String etag = etagOf(path);
+
+        mockMvc.perform(get(path).header(HttpHeaders.IF_NONE_MATCH, etag)).andExpect(status().isNotModified());
+
+        userService.addFriend(firstUser.getId(), secondUser.getId());
+        String afterFriend = etagOf(path);
+        assertThat(afterFriend).isNotEqualTo(etag);
+
+        // Изменился сам друг - список тоже устарел
+        userService.update(secondUser.toBuilder().name("Renamed").build());
+        assertThat(etagOf(path)).isNotEqualTo(afterFriend);
+    }
+
+    private String etagOf(String path) throws Exception {
+        String etag = mockMvc.perform(get(path))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader(HttpHeaders.ETAG);
+
+        assertThat(etag).isNotNull();
+
+        return etag;
+    }
+}
@@ -24,7 +24,8 @@ import java.util.Set;
 
 import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
 
-@SpringBootTest
+// Кэш сущностей выключен: тесты проверяют, что именно лежит в базе
+@SpringBootTest(properties = "filmorate.cache.enabled=false")
 @AutoConfigureTestDatabase
 @RequiredArgsConstructor(onConstructor_ = @Autowired)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
@@ -202,6 +203,24 @@ public class DataBaseTest {
         assertThat(mutualFriends).asList().contains(userStorage.get(thirdUser.getId()));
     }
 
+    @Test
+    public void getSeveralCommonFriendsTest() {
+        firstUser = userStorage.create(firstUser);
+        secondUser = userStorage.create(secondUser);
+        thirdUser = userStorage.create(thirdUser);
+        fourthUser = userStorage.create(fourthUser);
+
+        userService.addFriend(firstUser.getId(), thirdUser.getId());
+        userService.addFriend(firstUser.getId(), fourthUser.getId());
+        userService.addFriend(secondUser.getId(), thirdUser.getId());
+        userService.addFriend(secondUser.getId(), fourthUser.getId());
+        List<User> mutualFriends = userService.getCommonFriends(firstUser.getId(), secondUser.getId());
+
+        assertThat(mutualFriends).asList().hasSize(2);
+        assertThat(mutualFriends).asList().contains(userStorage.get(thirdUser.getId()));
+        assertThat(mutualFriends).asList().contains(userStorage.get(fourthUser.getId()));
+    }
+
     @Test
     public void getAllUsersTest() {
         firstUser = userStorage.create(firstUser);
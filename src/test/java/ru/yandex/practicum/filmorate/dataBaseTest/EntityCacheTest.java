@@ -0,0 +1,119 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.lang.reflect.Method;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class EntityCacheTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final MeterRegistry meterRegistry;
+    Film film;
+    User user;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build()))
+                .build());
+        user = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+    }
+
+    @Test
+    public void repeatedReadsHitCacheTest() {
+        filmService.getFilm(film.getId());
+        filmService.getFilm(film.getId());
+        filmService.getFilm(film.getId());
+
+        assertThat(cacheGets("films", "miss")).isEqualTo(1.0);
+        assertThat(cacheGets("films", "hit")).isEqualTo(2.0);
+    }
+
+    @Test
+    public void likesInvalidateFilmTest() {
+        filmService.getFilm(film.getId());
+        filmService.putLikeOnFilm(film.getId(), user.getId());
+
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(1);
+
+        filmService.deleteLikeOnFilm(film.getId(), user.getId());
+
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(0);
+        assertThat(filmService.getPopularFilms(1).get(0).getRate()).isEqualTo(0);
+    }
+
+    @Test
+    public void updateInvalidatesFilmGenresTest() {
+        filmService.getFilm(film.getId());
+        filmService.updateFilm(film.toBuilder()
+                .name("Updated")
+                .genres(Set.of(FilmGenre.builder().id(2).build(), FilmGenre.builder().id(3).build()))
+                .build());
+
+        Film cached = filmService.getFilm(film.getId());
+
+        assertThat(cached.getName()).isEqualTo("Updated");
+        assertThat(cached.getGenres().size()).isEqualTo(2);
+    }
+
+    @Test
+    public void updateInvalidatesUserTest() {
+        userService.get(user.getId());
+        userService.update(user.toBuilder().name("Renamed").build());
+
+        assertThat(userService.get(user.getId()).getName()).isEqualTo("Renamed");
+        assertThat(cacheGets("users", "miss")).isEqualTo(2.0);
+    }
+
+    @Test
+    public void cachedEntitiesAreImmutableTest() {
+        Film cached = filmService.getFilm(film.getId());
+
+        // Один и тот же экземпляр получают все читатели, поэтому ни сам объект, ни его жанры не меняются
+        assertThat(filmService.getFilm(film.getId())).isSameAs(cached);
+        Assertions.assertThrows(UnsupportedOperationException.class,
+                () -> cached.getGenres().add(FilmGenre.builder().id(2).build()));
+
+        for (Class<?> type : List.of(Film.class, User.class)) {
+            assertThat(Arrays.stream(type.getMethods()).map(Method::getName).noneMatch(name -> name.startsWith("set")))
+                    .isTrue();
+        }
+    }
+
+    private double cacheGets(String cache, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+}
@@ -0,0 +1,112 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.db.FilmRepairJob;
+
+import java.time.LocalDate;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class FilmDenormalizationTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmRepairJob repairJob;
+    private final JdbcTemplate jdbcTemplate;
+    Film film;
+    User firstUser;
+    User secondUser;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .rate(5)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build(), FilmGenre.builder().id(5).build()))
+                .build());
+        firstUser = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+        secondUser = userService.create(User.builder()
+                .email("Second@yandex.ru")
+                .login("second")
+                .birthday(LocalDate.of(1999, 7, 10))
+                .build());
+    }
+
+    @Test
+    public void fieldsFollowLikesAndGenresTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.putLikeOnFilm(film.getId(), secondUser.getId());
+        filmService.deleteLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.updateFilm(film.toBuilder()
+                .rate(6)
+                .genres(Set.of(FilmGenre.builder().id(2).build()))
+                .build());
+
+        Map<String, Object> row = storedFields();
+
+        assertThat(((Number) row.get("likes_count")).intValue()).isEqualTo(1);
+        assertThat(((Number) row.get("genre_mask")).longValue()).isEqualTo(0b10L);
+    }
+
+    @Test
+    public void repairRecomputesFieldsTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        // Лайки и жанры записаны в обход хранилища, денормализованные поля о них не знают
+        jdbcTemplate.update("INSERT INTO users_like (film_id, user_id) VALUES (?, ?)", film.getId(), secondUser.getId());
+        jdbcTemplate.update("DELETE FROM films_genre WHERE film_id = ? AND genre_id = 5", film.getId());
+
+        assertThat(repairJob.repair()).isEqualTo(1);
+
+        Map<String, Object> row = storedFields();
+        Film repaired = filmService.getFilm(film.getId());
+
+        assertThat(((Number) row.get("likes_count")).intValue()).isEqualTo(2);
+        assertThat(repaired.getRate()).isEqualTo(7);
+        assertThat(repaired.getGenres().size()).isEqualTo(1);
+        assertThat(filmService.getPopularFilms(1).get(0).getRate()).isEqualTo(7);
+        assertThat(repairJob.repair()).isEqualTo(0);
+    }
+
+    @Test
+    public void nullRateCountsAsZeroTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        // Старые строки могут хранить rate = NULL; снятие лайка, как и постановка, считает его нулем
+        jdbcTemplate.update("UPDATE films SET rate = NULL WHERE film_id = ?", film.getId());
+        filmService.deleteLikeOnFilm(film.getId(), firstUser.getId());
+
+        Integer rate = jdbcTemplate.queryForObject("SELECT rate FROM films WHERE film_id = ?", Integer.class,
+                film.getId());
+
+        assertThat(rate).isEqualTo(-1);
+    }
+
+    private Map<String, Object> storedFields() {
+        return jdbcTemplate.queryForMap("SELECT likes_count, genre_mask FROM films WHERE film_id = ?", film.getId());
+    }
+}
@@ -0,0 +1,144 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.FilmSearchResult;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FilmSearchTest {
+    private final FilmService filmService;
+    private final MockMvc mockMvc;
+    List<Film> films;
+
+    @BeforeEach
+    public void createObjects() {
+        films = new ArrayList<>();
+        films.add(addFilm("Alien", "Space horror", 1979, 4, 8, 4));
+        films.add(addFilm("Aliens", "More space marines", 1986, 4, 9, 4, 6));
+        films.add(addFilm("Toy Story", "Toys come alive", 1995, 1, 7, 1, 3));
+        films.add(addFilm("Airplane!", "Disaster parody", 1980, 2, 5, 1));
+    }
+
+    @Test
+    public void filtersAndFacetsTest() {
+        FilmSearchResult byText = search(FilmSearchQuery.builder().text("ALIEN"));
+
+        assertThat(ids(byText)).isEqualTo(List.of(id(1), id(0)));
+        assertThat(byText.getTotal()).isEqualTo(2);
+
+        FilmSearchResult byGenre = search(FilmSearchQuery.builder().genres(Set.of(4)));
+
+        assertThat(ids(byGenre)).isEqualTo(List.of(id(1), id(0)));
+        assertThat(facet(byGenre.getGenres(), 4)).isEqualTo(2);
+        assertThat(facet(byGenre.getGenres(), 6)).isEqualTo(1);
+        assertThat(facet(byGenre.getGenres(), 1)).isEqualTo(0);
+        assertThat(facet(byGenre.getMpa(), 4)).isEqualTo(2);
+
+        // Фасеты МРА считаются без фильтра по МРА, чтобы было видно, что даст соседнее значение
+        FilmSearchResult byMpa = search(FilmSearchQuery.builder()
+                .mpa(Set.of(1, 2))
+                .sort(FilmSearchQuery.Sort.DATE));
+
+        assertThat(ids(byMpa)).isEqualTo(List.of(id(2), id(3)));
+        assertThat(facet(byMpa.getMpa(), 4)).isEqualTo(2);
+        assertThat(facet(byMpa.getMpa(), 1)).isEqualTo(1);
+        assertThat(facet(byMpa.getGenres(), 1)).isEqualTo(2);
+
+        FilmSearchResult byYears = search(FilmSearchQuery.builder().yearFrom(1980).yearTo(1990));
+
+        assertThat(ids(byYears)).isEqualTo(List.of(id(1), id(3)));
+    }
+
+    @Test
+    public void pagingAndUpdatesTest() {
+        FilmSearchResult page = search(FilmSearchQuery.builder().offset(1).limit(1));
+
+        assertThat(ids(page)).isEqualTo(List.of(id(0)));
+        assertThat(page.getTotal()).isEqualTo(4);
+
+        filmService.updateFilm(films.get(3).toBuilder().genres(Set.of(FilmGenre.builder().id(2).build())).build());
+        filmService.updateFilm(films.get(2).toBuilder().releaseDate(LocalDate.of(1960, 1, 1)).build());
+
+        assertThat(ids(search(FilmSearchQuery.builder().genres(Set.of(1))))).isEqualTo(List.of(id(2)));
+        assertThat(ids(search(FilmSearchQuery.builder().sort(FilmSearchQuery.Sort.DATE))))
+                .isEqualTo(List.of(id(1), id(3), id(0), id(2)));
+    }
+
+    @Test
+    public void searchEndpointTest() throws Exception {
+        mockMvc.perform(get("/films/search?genre=1&mpa=1,2&sort=date"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(2))
+                .andExpect(jsonPath("$.films[0].name").value("Toy Story"))
+                .andExpect(jsonPath("$.genres[0].name").value("Комедия"))
+                .andExpect(jsonPath("$.genres[0].count").value(2));
+        mockMvc.perform(get("/films/search?sort=rating")).andExpect(status().isBadRequest());
+    }
+
+    private Film addFilm(String name, String description, int year, int mpa, int rate, int... genres) {
+        Set<FilmGenre> filmGenres = new HashSet<>();
+
+        for (int genre : genres) {
+            filmGenres.add(FilmGenre.builder().id(genre).build());
+        }
+
+        return filmService.addFilm(Film.builder()
+                .name(name)
+                .description(description)
+                .duration(100)
+                .rate(rate)
+                .releaseDate(LocalDate.of(year, 6, 1))
+                .mpa(MPA.builder().id(mpa).build())
+                .genres(filmGenres)
+                .build());
+    }
+
+    private FilmSearchResult search(FilmSearchQuery.FilmSearchQueryBuilder query) {
+        FilmSearchQuery built = query.build();
+
+        return filmService.searchFilms(built.toBuilder()
+                .sort(built.getSort() == null ? FilmSearchQuery.Sort.POPULAR : built.getSort())
+                .limit(built.getLimit() == 0 ? 100 : built.getLimit())
+                .build());
+    }
+
+    private int id(int index) {
+        return films.get(index).getId();
+    }
+
+    private List<Integer> ids(FilmSearchResult result) {
+        return result.getFilms().stream().map(Film::getId).collect(Collectors.toList());
+    }
+
+    private int facet(List<FilmSearchResult.Facet> facets, int id) {
+        return facets.stream().filter(facet -> facet.getId() == id).findFirst().orElseThrow().getCount();
+    }
+}
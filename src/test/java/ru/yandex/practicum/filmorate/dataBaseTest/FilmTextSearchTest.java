@@ -0,0 +1,115 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.endpoints.FilmSearchEndpoint;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmSearchQuery;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FilmTextSearchTest {
+    private final FilmService filmService;
+    private final FilmSearchEndpoint searchEndpoint;
+    private final JdbcTemplate jdbcTemplate;
+    private final MockMvc mockMvc;
+    List<Film> films;
+
+    @BeforeEach
+    public void createObjects() {
+        films = new ArrayList<>();
+        films.add(addFilm("Терминатор", "Киборг из будущего", 10));
+        films.add(addFilm("Терминатор 2", "Судный день", 50));
+        films.add(addFilm("Чужой", "Экипаж буксира и терминатор-ксеноморф", 100));
+        films.add(addFilm("Матрица", "Нео выбирает красную таблетку", 0));
+    }
+
+    @Test
+    public void prefixAndTypoMatchingTest() {
+        // Совпадение в названии весит больше, чем в описании, даже при большем rate
+        assertThat(search("терминатор")).isEqualTo(List.of(id(1), id(0), id(2)));
+        assertThat(search("терм")).isEqualTo(List.of(id(1), id(0), id(2)));
+        assertThat(search("терминатро")).isEqualTo(List.of(id(1), id(0), id(2)));
+        assertThat(search("матрциа нео")).isEqualTo(List.of(id(3)));
+        assertThat(search("Матрица терминатор")).isEqualTo(List.of());
+        assertThat(search("ё")).isEqualTo(List.of());
+        // Опечатки не ищутся в коротких словах
+        assertThat(search("нэо")).isEqualTo(List.of());
+    }
+
+    @Test
+    public void incrementalUpdateAndRebuildTest() {
+        filmService.updateFilm(films.get(3).toBuilder().name("Тёмный город").build());
+
+        assertThat(search("матрица")).isEqualTo(List.of());
+        assertThat(search("темный")).isEqualTo(List.of(id(3)));
+
+        // Изменение в обход хранилища видно только после перестройки индекса
+        jdbcTemplate.update("UPDATE films SET name = 'Бегущий по лезвию' WHERE film_id = ?", id(3));
+
+        assertThat(search("бегущий")).isEqualTo(List.of());
+        assertThat(searchEndpoint.rebuild().get("indexed")).isEqualTo(4);
+        assertThat(search("бегущий")).isEqualTo(List.of(id(3)));
+        assertThat(search("темный")).isEqualTo(List.of());
+    }
+
+    @Test
+    public void relevanceIsDefaultSortForTextTest() throws Exception {
+        mockMvc.perform(get("/films/search?q=терминатор"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.total").value(3))
+                .andExpect(jsonPath("$.films[0].name").value("Терминатор 2"));
+        mockMvc.perform(get("/films/search?q=терминатор&sort=popular"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.films[0].name").value("Чужой"));
+    }
+
+    private Film addFilm(String name, String description, int rate) {
+        return filmService.addFilm(Film.builder()
+                .name(name)
+                .description(description)
+                .duration(100)
+                .rate(rate)
+                .releaseDate(LocalDate.of(1990, 6, 1))
+                .mpa(MPA.builder().id(1).build())
+                .build());
+    }
+
+    private int id(int index) {
+        return films.get(index).getId();
+    }
+
+    private List<Integer> search(String text) {
+        return filmService.searchFilms(FilmSearchQuery.builder()
+                        .text(text)
+                        .sort(FilmSearchQuery.Sort.RELEVANCE)
+                        .limit(100)
+                        .build())
+                .getFilms().stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
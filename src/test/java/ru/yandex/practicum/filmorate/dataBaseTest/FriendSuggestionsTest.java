@@ -0,0 +1,169 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.UserStorage;
+import ru.yandex.practicum.filmorate.storage.cache.EntityCache;
+import ru.yandex.practicum.filmorate.storage.cache.ResourceVersions;
+import ru.yandex.practicum.filmorate.storage.db.DataBaseUserStorage;
+import ru.yandex.practicum.filmorate.storage.index.FriendshipIndex;
+import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class FriendSuggestionsTest {
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ResourceVersions versions;
+    private final FriendshipIndex friendshipIndex;
+    List<User> users;
+
+    @BeforeEach
+    public void createObjects() {
+        users = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            users.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1978, 3, 15))
+                    .build()));
+        }
+    }
+
+    @Test
+    public void suggestionsTest() {
+        addFriend(0, 1);
+        addFriend(0, 2);
+        addFriend(1, 0);
+        addFriend(1, 3);
+        addFriend(2, 1);
+        addFriend(2, 3);
+        addFriend(2, 4);
+
+        // Сам пользователь и его друзья не предлагаются, у четвертого двое общих друзей
+        assertThat(suggest(0)).isEqualTo(List.of(id(3), id(4)));
+
+        userService.deleteFriend(id(0), id(2));
+        assertThat(suggest(0)).isEqualTo(List.of(id(3)));
+
+        addFriend(0, 3);
+        assertThat(suggest(0)).isEqualTo(List.of());
+    }
+
+    @Test
+    public void rankingSurvivesDisabledCacheTest() {
+        addFriend(0, 1);
+        addFriend(0, 2);
+        addFriend(1, 3);
+        addFriend(1, 4);
+        addFriend(2, 4);
+
+        // Без кэша пользователи читаются через IN (...), а база возвращает их по id, а не по рангу
+        UserStorage uncached = new DataBaseUserStorage(jdbcTemplate, transactionTemplate,
+                new EntityCache<>("users", User::getId, false, 0, 0, new SimpleMeterRegistry()),
+                versions, friendshipIndex);
+        List<Integer> suggested = uncached.getFriendSuggestions(id(0), 10).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+
+        assertThat(suggested).isEqualTo(List.of(id(4), id(3)));
+    }
+
+    @Test
+    public void unknownUserSuggestionsTest() {
+        Assertions.assertThrows(UserNotFoundException.class, () -> userService.getFriendSuggestions(9999, 10));
+    }
+
+    @Test
+    public void incrementalUpdatesMatchBruteForceTest() {
+        Random random = new Random(42);
+        FriendshipIndex index = new FriendshipIndex(jdbcTemplate, Integer.MAX_VALUE);
+        Map<Integer, Set<Integer>> friends = new HashMap<>();
+
+        // Изменений больше порога, так что по пути индекс несколько раз сливает их в CSR
+        for (int i = 0; i < 40_000; i++) {
+            int user = 1 + random.nextInt(6_000);
+            int friend = 1 + random.nextInt(6_000);
+            Set<Integer> userFriends = friends.computeIfAbsent(user, id -> new TreeSet<>());
+
+            if (random.nextInt(4) == 0) {
+                index.deleteFriend(user, friend);
+                userFriends.remove(friend);
+            } else if (user != friend) {
+                index.addFriend(user, friend);
+                userFriends.add(friend);
+            }
+        }
+
+        for (int user = 1; user <= 100; user++) {
+            List<Integer> suggested = new ArrayList<>();
+
+            for (int id : index.suggest(user, 10)) {
+                suggested.add(id);
+            }
+
+            assertThat(suggested).isEqualTo(bruteForce(friends, user, 10));
+        }
+    }
+
+    private List<Integer> bruteForce(Map<Integer, Set<Integer>> friends, int userId, int count) {
+        Set<Integer> direct = friends.getOrDefault(userId, Set.of());
+        Map<Integer, Integer> mutual = new HashMap<>();
+
+        for (Integer friend : direct) {
+            for (Integer candidate : friends.getOrDefault(friend, Set.of())) {
+                if (candidate != userId && !direct.contains(candidate)) {
+                    mutual.merge(candidate, 1, Integer::sum);
+                }
+            }
+        }
+
+        return mutual.entrySet().stream()
+                .sorted(Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void addFriend(int user, int friend) {
+        userService.addFriend(id(user), id(friend));
+    }
+
+    private int id(int index) {
+        return users.get(index).getId();
+    }
+
+    private List<Integer> suggest(int user) {
+        return userService.getFriendSuggestions(id(user), 10).stream()
+                .map(User::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,104 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class GetAllFilmsConcurrencyTest {
+    private static final int FILMS_COUNT = 300;
+    private static final int GENRES_COUNT = 6;
+    private static final int THREADS_COUNT = 16;
+    private static final int REQUESTS_PER_THREAD = 50;
+
+    private final FilmService filmService;
+    List<Film> expected;
+
+    @BeforeEach
+    public void createObjects() {
+        expected = new ArrayList<>();
+
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            // у каждого фильма свой набор жанров, чтобы перепутанные жанры было видно
+            Set<FilmGenre> genres = new HashSet<>();
+
+            for (int genreId = 1; genreId <= GENRES_COUNT; genreId++) {
+                if ((i >> (genreId - 1) & 1) == 1) {
+                    genres.add(FilmGenre.builder().id(genreId).build());
+                }
+            }
+
+            expected.add(filmService.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Film number " + i)
+                    .duration(90 + i)
+                    .releaseDate(LocalDate.of(1950, 1, 1).plusDays(i))
+                    .mpa(MPA.builder().id(i % 5 + 1).build())
+                    .genres(genres)
+                    .build()));
+        }
+    }
+
+    @Test
+    public void parallelGetAllFilmsTest() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+        List<Callable<Integer>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < THREADS_COUNT; i++) {
+            tasks.add(() -> {
+                int checked = 0;
+
+                for (int j = 0; j < REQUESTS_PER_THREAD; j++) {
+                    assertThat(filmService.getFilms()).isEqualTo(expected);
+                    checked++;
+                }
+
+                return checked;
+            });
+        }
+
+        try {
+            for (Future<Integer> future : executor.invokeAll(tasks)) {
+                assertThat(future.get()).isEqualTo(REQUESTS_PER_THREAD);
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void getAllFilmsMatchesSingleFilmLoadTest() {
+        List<Film> films = filmService.getFilms();
+
+        assertThat(films.size()).isEqualTo(FILMS_COUNT);
+
+        for (Film film : films) {
+            assertThat(film).isEqualTo(filmService.getFilm(film.getId()));
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.db.FilmRepairJob;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class LikeConcurrencyTest {
+    private static final int USERS_COUNT = 2000;
+    private static final int THREADS_COUNT = 16;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmRepairJob repairJob;
+    private final FilmPopularityIndex popularityIndex;
+    private final JdbcTemplate jdbcTemplate;
+    Film film;
+    List<Integer> userIds;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Premiere")
+                .description("Everybody likes it")
+                .duration(120)
+                .releaseDate(LocalDate.of(2023, 7, 21))
+                .mpa(MPA.builder().id(1).build())
+                .build());
+
+        userIds = new ArrayList<>();
+
+        for (int i = 0; i < USERS_COUNT; i++) {
+            userIds.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(2000, 1, 1))
+                    .build()).getId());
+        }
+    }
+
+    @Test
+    public void parallelLikesTest() throws Exception {
+        runInParallel(userId -> filmService.putLikeOnFilm(film.getId(), userId), userIds);
+
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(USERS_COUNT);
+    }
+
+    @Test
+    public void parallelDuplicateLikesTest() throws Exception {
+        List<Integer> doubled = new ArrayList<>(userIds);
+        doubled.addAll(userIds);
+        AtomicInteger rejected = new AtomicInteger();
+
+        runInParallel(userId -> {
+            try {
+                filmService.putLikeOnFilm(film.getId(), userId);
+            } catch (IllegalArgumentException ex) {
+                rejected.incrementAndGet();
+            }
+        }, doubled);
+
+        assertThat(rejected.get()).isEqualTo(USERS_COUNT);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(USERS_COUNT);
+    }
+
+    @Test
+    public void parallelLikesAndUnlikesTest() throws Exception {
+        List<Integer> half = userIds.subList(0, USERS_COUNT / 2);
+        runInParallel(userId -> filmService.putLikeOnFilm(film.getId(), userId), half);
+
+        List<Integer> rest = userIds.subList(USERS_COUNT / 2, USERS_COUNT);
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < half.size(); i++) {
+            int liked = half.get(i);
+            int notLiked = rest.get(i);
+            tasks.add(() -> {
+                filmService.deleteLikeOnFilm(film.getId(), liked);
+                return null;
+            });
+            tasks.add(() -> {
+                filmService.putLikeOnFilm(film.getId(), notLiked);
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(rest.size());
+    }
+
+    @Test
+    public void parallelLikesWithRepairTest() throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < USERS_COUNT; i++) {
+            int userId = userIds.get(i);
+            tasks.add(() -> {
+                filmService.putLikeOnFilm(film.getId(), userId);
+                return null;
+            });
+
+            if (i % 4 == 0) {
+                tasks.add(() -> {
+                    // Испорченная маска жанров заставляет ремонт пересобрать индексы посреди лайков
+                    jdbcTemplate.update("UPDATE films SET genre_mask = 1 WHERE film_id = ?", film.getId());
+                    repairJob.repair();
+                    return null;
+                });
+            }
+        }
+
+        invokeAll(tasks);
+
+        Integer storedRate = jdbcTemplate.queryForObject("SELECT rate FROM films WHERE film_id = ?", Integer.class,
+                film.getId());
+
+        assertThat(storedRate).isEqualTo(USERS_COUNT);
+        assertThat(popularityIndex.getRate(film.getId())).isEqualTo(USERS_COUNT);
+    }
+
+    private void runInParallel(IntAction action, List<Integer> userIds) throws Exception {
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int userId : userIds) {
+            tasks.add(() -> {
+                action.run(userId);
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    private interface IntAction {
+        void run(int value);
+    }
+}
@@ -0,0 +1,275 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.Like;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+import ru.yandex.practicum.filmorate.storage.db.FilmRepairJob;
+import ru.yandex.practicum.filmorate.storage.db.LikeWriteBuffer;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+// Фоновый сброс раз в час: в тестах буфер сбрасывается только явно
+@SpringBootTest(properties = {
+        "filmorate.likes.write-behind.enabled=true",
+        "filmorate.likes.write-behind.flush-interval-ms=3600000"})
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class LikeWriteBehindTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final LikeWriteBuffer likeWriteBuffer;
+    private final FilmRepairJob repairJob;
+    private final FilmPopularityIndex popularityIndex;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    Film film;
+    User firstUser;
+    User secondUser;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .build());
+        firstUser = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+        secondUser = userService.create(User.builder()
+                .email("Second@yandex.ru")
+                .login("second")
+                .birthday(LocalDate.of(1999, 7, 10))
+                .build());
+    }
+
+    @Test
+    public void likeThenUnlikeCancelOutTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.deleteLikeOnFilm(film.getId(), firstUser.getId());
+
+        assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(0);
+
+        likeWriteBuffer.flush();
+
+        assertThat(likesCount()).isEqualTo(0);
+        assertThat(storedRate()).isEqualTo(0);
+        Assertions.assertThrows(UserNotFoundException.class,
+                () -> filmService.deleteLikeOnFilm(film.getId(), firstUser.getId()));
+    }
+
+    @Test
+    public void readYourWritesTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+
+        // В базе лайка еще нет, но автор его уже видит
+        assertThat(likesCount()).isEqualTo(0);
+        assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(1);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(1);
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> filmService.putLikeOnFilm(film.getId(), firstUser.getId()));
+
+        likeWriteBuffer.flush();
+
+        assertThat(likesCount()).isEqualTo(1);
+        assertThat(storedRate()).isEqualTo(1);
+        assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(0);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(1);
+    }
+
+    @Test
+    public void flushOnShutdownTest() throws Exception {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.putLikeOnFilm(film.getId(), secondUser.getId());
+
+        likeWriteBuffer.stop();
+
+        assertThat(likesCount()).isEqualTo(2);
+        assertThat(storedRate()).isEqualTo(2);
+    }
+
+    @Test
+    public void alreadyStoredLikeDoesNotBlockFlushTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.putLikeOnFilm(film.getId(), secondUser.getId());
+        // Строка появилась в базе в обход буфера: вставка ее пропускает, и rate за нее не растет
+        jdbcTemplate.update("INSERT INTO users_like (film_id, user_id) VALUES (?, ?)", film.getId(), firstUser.getId());
+
+        likeWriteBuffer.flush();
+
+        assertThat(likesCount()).isEqualTo(2);
+        assertThat(storedRate()).isEqualTo(1);
+        assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(0);
+        // Лайк, не изменивший rate в базе, откатывается и в индексе популярности
+        assertThat(popularityIndex.getRate(film.getId())).isEqualTo(1);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(1);
+    }
+
+    @Test
+    public void failingRowIsDeadLetteredTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.putLikeOnFilm(film.getId(), secondUser.getId());
+        // Лайк удаленного пользователя нарушает внешний ключ: пачка падает, и строки пишутся по одной
+        jdbcTemplate.update("DELETE FROM users WHERE id = ?", secondUser.getId());
+
+        likeWriteBuffer.flush();
+
+        assertThat(likesCount()).isEqualTo(1);
+        assertThat(storedRate()).isEqualTo(1);
+        assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(0);
+        assertThat(meterRegistry.counter("filmorate.likes.dead_letters").count()).isEqualTo(1.0);
+        assertThat(popularityIndex.getRate(film.getId())).isEqualTo(1);
+        assertThat(filmService.getFilm(film.getId()).getRate()).isEqualTo(1);
+
+        // Выброшенная строка не возвращается при следующих сбросах
+        likeWriteBuffer.flush();
+
+        assertThat(storedRate()).isEqualTo(1);
+        assertThat(meterRegistry.counter("filmorate.likes.dead_letters").count()).isEqualTo(1.0);
+    }
+
+    @Test
+    public void rowReadBeforeFlushKeepsBufferedLikesTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.putLikeOnFilm(film.getId(), secondUser.getId());
+        // Строка фильма прочитана до сброса: в ней еще нет лайков, а после сброса их нет и в буфере
+        long flushesBefore = likeWriteBuffer.flushes();
+        int rowRate = storedRate();
+
+        likeWriteBuffer.flush();
+
+        assertThat(likeWriteBuffer.rateWithPending(film.getId(), rowRate, flushesBefore, this::storedRate))
+                .isEqualTo(2);
+        assertThat(likeWriteBuffer.rateWithPending(film.getId(), storedRate(), likeWriteBuffer.flushes(),
+                this::storedRate)).isEqualTo(2);
+    }
+
+    @Test
+    public void bulkLikesSeeBufferedLikesTest() {
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+
+        int[] inserted = filmStorage.putLikes(List.of(
+                Like.builder().filmId(film.getId()).userId(firstUser.getId()).build(),
+                Like.builder().filmId(film.getId()).userId(secondUser.getId()).build()));
+
+        assertThat(inserted[0]).isEqualTo(0);
+        assertThat(inserted[1]).isEqualTo(1);
+        assertThat(likesCount()).isEqualTo(2);
+        assertThat(storedRate()).isEqualTo(2);
+    }
+
+    @Test
+    public void likesWaitForBulkWriteTest() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Object> bulk = executor.submit(() -> likeWriteBuffer.flushAndRun(() -> {
+                started.countDown();
+
+                try {
+                    release.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+
+                return null;
+            }));
+            started.await();
+
+            Future<?> like = executor.submit(() -> filmService.putLikeOnFilm(film.getId(), firstUser.getId()));
+
+            // Пока массовая запись держит полосы, лайк в буфер не попадает
+            Thread.sleep(200);
+            assertThat(like.isDone()).isFalse();
+
+            release.countDown();
+            bulk.get(10, TimeUnit.SECONDS);
+            like.get(10, TimeUnit.SECONDS);
+
+            assertThat(likeWriteBuffer.pendingRateDelta(film.getId())).isEqualTo(1);
+        } finally {
+            release.countDown();
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+
+    @Test
+    public void likesDuringRepairAreNotLostTest() throws Exception {
+        int usersCount = 200;
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<?>> futures = new ArrayList<>();
+
+        try {
+            for (int i = 0; i < usersCount; i++) {
+                int userId = userService.create(User.builder()
+                        .email("user" + i + "@yandex.ru")
+                        .login("user" + i)
+                        .birthday(LocalDate.of(2000, 1, 1))
+                        .build()).getId();
+                futures.add(executor.submit(() -> filmService.putLikeOnFilm(film.getId(), userId)));
+
+                if (i % 10 == 0) {
+                    futures.add(executor.submit(() -> {
+                        jdbcTemplate.update("UPDATE films SET genre_mask = 1 WHERE film_id = ?", film.getId());
+                        repairJob.repair();
+                    }));
+                }
+            }
+
+            for (Future<?> future : futures) {
+                future.get(1, TimeUnit.MINUTES);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        likeWriteBuffer.flush();
+
+        assertThat(storedRate()).isEqualTo(usersCount);
+        assertThat(popularityIndex.getRate(film.getId())).isEqualTo(usersCount);
+    }
+
+    private int likesCount() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM users_like WHERE film_id = ?", Integer.class,
+                film.getId());
+    }
+
+    private int storedRate() {
+        return jdbcTemplate.queryForObject("SELECT COALESCE(rate, 0) FROM films WHERE film_id = ?", Integer.class,
+                film.getId());
+    }
+}
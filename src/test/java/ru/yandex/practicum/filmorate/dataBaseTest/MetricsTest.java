@@ -0,0 +1,106 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import java.time.LocalDate;
+import java.util.Set;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class MetricsTest {
+    private final FilmService filmService;
+    private final MeterRegistry meterRegistry;
+    private final MockMvc mockMvc;
+    Film film;
+
+    @BeforeEach
+    public void createObjects() {
+        film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build()))
+                .build());
+    }
+
+    @Test
+    public void storageMethodTimerTest() {
+        filmService.getFilm(film.getId());
+
+        assertThat(meterRegistry.get("filmorate.storage")
+                .tag("storage", "DataBaseFilmStorage")
+                .tag("method", "get")
+                .tag("exception", "none")
+                .timer()
+                .count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void storageMethodExceptionTagTest() {
+        try {
+            filmService.getFilm(9999);
+        } catch (RuntimeException ignored) {
+        }
+
+        assertThat(meterRegistry.get("filmorate.storage")
+                .tag("method", "get")
+                .tag("exception", "FilmNotFoundException")
+                .timer()
+                .count()).isEqualTo(1L);
+    }
+
+    @Test
+    public void sqlQueriesPerRequestTest() throws Exception {
+        mockMvc.perform(get("/films/" + film.getId())).andExpect(status().isOk());
+
+        assertThat(meterRegistry.get("filmorate.http.sql.queries")
+                .tag("uri", "/films/{id}")
+                .summary()
+                .totalAmount()).isEqualTo(1.0);
+        assertThat(meterRegistry.get("filmorate.sql").tag("operation", "select").timer().count())
+                .isGreaterThanOrEqualTo(1L);
+    }
+
+    @Test
+    public void exportQueriesCountedAfterStreamingTest() throws Exception {
+        MvcResult started = mockMvc.perform(get("/films/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isOk());
+
+        // Выгрузка идет в другом потоке уже после фильтра, но ее запросы попадают в тот же HTTP-запрос
+        DistributionSummary export = meterRegistry.get("filmorate.http.sql.queries")
+                .tag("uri", "/films/export")
+                .summary();
+
+        assertThat(export.count()).isEqualTo(1L);
+        assertThat(export.totalAmount()).isGreaterThanOrEqualTo(1.0);
+    }
+}
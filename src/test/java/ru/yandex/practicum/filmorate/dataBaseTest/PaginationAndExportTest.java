@@ -0,0 +1,161 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.FilmStorage;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class PaginationAndExportTest {
+    private static final int DEFAULT_PAGE_SIZE = 100;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final FilmStorage filmStorage;
+    private final ObjectMapper objectMapper;
+    private final MockMvc mockMvc;
+    List<Film> films;
+    List<User> users;
+
+    @BeforeEach
+    public void createObjects() {
+        films = new ArrayList<>();
+        users = new ArrayList<>();
+
+        for (int i = 0; i < 5; i++) {
+            films.add(filmService.addFilm(film("Film " + i)));
+            users.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1978, 3, 15))
+                    .build()));
+        }
+    }
+
+    @Test
+    public void pageBoundariesTest() throws Exception {
+        mockMvc.perform(get("/films?after=0&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(films.get(0).getId(), films.get(1).getId())));
+        mockMvc.perform(get("/films?after=" + films.get(1).getId() + "&limit=2"))
+                .andExpect(jsonPath("$[*].id", contains(films.get(2).getId(), films.get(3).getId())));
+        // Последняя страница неполная, следующая за ней - пустая
+        mockMvc.perform(get("/films?after=" + films.get(3).getId() + "&limit=2"))
+                .andExpect(jsonPath("$[*].id", contains(films.get(4).getId())));
+        mockMvc.perform(get("/films?after=" + films.get(4).getId() + "&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+        mockMvc.perform(get("/films?after=99999"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+
+        mockMvc.perform(get("/users?after=" + users.get(2).getId() + "&limit=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[*].id", contains(users.get(3).getId(), users.get(4).getId())));
+        mockMvc.perform(get("/users?after=99999&limit=10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(0));
+    }
+
+    @Test
+    public void defaultAndInvalidLimitTest() throws Exception {
+        List<Film> more = new ArrayList<>();
+
+        for (int i = 0; i < DEFAULT_PAGE_SIZE; i++) {
+            more.add(film("More " + i));
+        }
+
+        filmStorage.addAll(more);
+
+        mockMvc.perform(get("/films?after=0"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(DEFAULT_PAGE_SIZE))
+                .andExpect(jsonPath("$[0].id").value(films.get(0).getId()));
+        // Без параметров - весь список, как до появления страниц
+        mockMvc.perform(get("/films"))
+                .andExpect(jsonPath("$.length()").value(DEFAULT_PAGE_SIZE + films.size()));
+
+        mockMvc.perform(get("/films?limit=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films?limit=-5")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films?after=-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films?limit=abc")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/users?limit=0")).andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void ndjsonExportTest() throws Exception {
+        List<String> filmLines = export("/films/export");
+
+        assertThat(filmLines.size()).isEqualTo(films.size());
+
+        for (int i = 0; i < films.size(); i++) {
+            Film exported = objectMapper.readValue(filmLines.get(i), Film.class);
+
+            assertThat(exported.getId()).isEqualTo(films.get(i).getId());
+            assertThat(exported.getName()).isEqualTo(films.get(i).getName());
+        }
+
+        List<String> userLines = export("/users/export");
+
+        assertThat(userLines.size()).isEqualTo(users.size());
+        assertThat(objectMapper.readValue(userLines.get(4), User.class).getLogin()).isEqualTo("user4");
+    }
+
+    // Ответ пишется асинхронно, поэтому тело читается после повторной отправки запроса в диспетчер
+    private List<String> export(String path) throws Exception {
+        MvcResult started = mockMvc.perform(get(path))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString(StandardCharsets.UTF_8);
+
+        assertThat(body.endsWith("\n")).isTrue();
+
+        return List.of(body.substring(0, body.length() - 1).split("\n", -1));
+    }
+
+    private static Film film(String name) {
+        return Film.builder()
+                .name(name)
+                .description("Paged")
+                .duration(90)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(MPA.builder().id(1).build())
+                .build();
+    }
+}
@@ -0,0 +1,147 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class PopularLeaderboardTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final MockMvc mockMvc;
+    List<Film> films;
+    User user;
+
+    @BeforeEach
+    public void createObjects() {
+        films = new ArrayList<>();
+        films.add(addFilm(1979, 4, 8, 2, 4));
+        films.add(addFilm(1986, 4, 9, 4, 6));
+        films.add(addFilm(1995, 1, 7, 1, 3));
+        films.add(addFilm(1986, 2, 5, 1));
+        user = userService.create(User.builder()
+                .email("user@yandex.ru")
+                .login("user")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+    }
+
+    @Test
+    public void partitionsAndLikesTest() {
+        assertThat(popular(null, null, null)).isEqualTo(List.of(id(1), id(0), id(2), id(3)));
+        assertThat(popular(4, null, null)).isEqualTo(List.of(id(1), id(0)));
+        assertThat(popular(null, 1986, null)).isEqualTo(List.of(id(1), id(3)));
+        assertThat(popular(1, 1986, null)).isEqualTo(List.of(id(3)));
+        assertThat(popular(4, null, 4)).isEqualTo(List.of(id(1), id(0)));
+        assertThat(popular(5, null, null)).isEqualTo(List.of());
+        assertThat(popular(null, 2000, null)).isEqualTo(List.of());
+
+        filmService.putLikeOnFilm(id(0), user.getId());
+        filmService.putLikeOnFilm(id(3), user.getId());
+
+        // При равном rate выше фильм с меньшим id
+        assertThat(popular(4, null, null)).isEqualTo(List.of(id(0), id(1)));
+        assertThat(popular(1, null, null)).isEqualTo(List.of(id(2), id(3)));
+
+        filmService.deleteLikeOnFilm(id(0), user.getId());
+        assertThat(popular(2, null, null)).isEqualTo(List.of(id(0)));
+        assertThat(popular(4, null, null)).isEqualTo(List.of(id(1), id(0)));
+    }
+
+    @Test
+    public void filmUpdateMovesBetweenPartitionsTest() {
+        filmService.updateFilm(films.get(1).toBuilder()
+                .genres(Set.of(FilmGenre.builder().id(1).build()))
+                .releaseDate(LocalDate.of(2001, 1, 1))
+                .mpa(MPA.builder().id(3).build())
+                .build());
+
+        assertThat(popular(4, null, null)).isEqualTo(List.of(id(0)));
+        assertThat(popular(6, null, null)).isEqualTo(List.of());
+        assertThat(popular(1, null, null)).isEqualTo(List.of(id(1), id(2), id(3)));
+        assertThat(popular(null, 1986, null)).isEqualTo(List.of(id(3)));
+        assertThat(popular(null, 2001, 3)).isEqualTo(List.of(id(1)));
+        assertThat(popular(null, null, 4)).isEqualTo(List.of(id(0)));
+    }
+
+    @Test
+    public void popularEndpointTest() throws Exception {
+        mockMvc.perform(get("/films/popular?genreId=1&count=1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(id(2)));
+
+        // У разных фильтров разные ETag, поэтому 304 не подтвердит чужой топ
+        String etag = mockMvc.perform(get("/films/popular?genreId=1"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/films/popular?genreId=1").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+        mockMvc.perform(get("/films/popular?genreId=4").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+        mockMvc.perform(get("/films/popular").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk());
+
+        mockMvc.perform(get("/films/popular?count=0")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular?count=-1")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular?count=1001")).andExpect(status().isBadRequest());
+        mockMvc.perform(get("/films/popular?count=1000")).andExpect(status().isOk());
+    }
+
+    private Film addFilm(int year, int mpa, int rate, int... genres) {
+        Set<FilmGenre> filmGenres = new HashSet<>();
+
+        for (int genre : genres) {
+            filmGenres.add(FilmGenre.builder().id(genre).build());
+        }
+
+        return filmService.addFilm(Film.builder()
+                .name("Film " + year)
+                .description("Description")
+                .duration(100)
+                .rate(rate)
+                .releaseDate(LocalDate.of(year, 6, 1))
+                .mpa(MPA.builder().id(mpa).build())
+                .genres(filmGenres)
+                .build());
+    }
+
+    private int id(int index) {
+        return films.get(index).getId();
+    }
+
+    private List<Integer> popular(Integer genreId, Integer year, Integer mpaId) {
+        return filmService.getPopularFilms(10, genreId, year, mpaId).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,134 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.FilmPopularityIndex;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class PopularityIndexConcurrencyTest {
+    private static final int THREADS_COUNT = 16;
+    private static final int LIKES_COUNT = 400;
+    private static final int UPDATES_COUNT = 100;
+
+    private final FilmPopularityIndex popularityIndex;
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void deltasAndUpdatesInterleaveTest() throws Exception {
+        // Фильма нет в базе: индекс проверяется сам по себе
+        int filmId = 1_000_000;
+        popularityIndex.put(filmId, film(0, 1));
+
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < LIKES_COUNT; i++) {
+            tasks.add(() -> {
+                popularityIndex.changeRate(filmId, 1);
+                return null;
+            });
+        }
+
+        for (int i = 0; i < UPDATES_COUNT; i++) {
+            // rate в переданной версии устарел; учитываться должна только разница rateDelta
+            Film version = film(0, i % 2 == 0 ? 2 : 1);
+            tasks.add(() -> {
+                popularityIndex.update(filmId, version, 2);
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+
+        assertThat(popularityIndex.getRate(filmId)).isEqualTo(LIKES_COUNT + 2 * UPDATES_COUNT);
+        assertThat(popularityIndex.getTop(10)).isEqualTo(List.of(filmId));
+        assertThat(popularityIndex.getTop(10, 1, null, null).size() + popularityIndex.getTop(10, 2, null, null).size())
+                .isEqualTo(1);
+    }
+
+    @Test
+    public void likesDuringFilmUpdatesTest() throws Exception {
+        Film film = filmService.addFilm(film(0, 1));
+        List<Callable<Void>> tasks = new ArrayList<>();
+
+        for (int i = 0; i < LIKES_COUNT; i++) {
+            int userId = userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(2000, 1, 1))
+                    .build()).getId();
+            tasks.add(() -> {
+                filmService.putLikeOnFilm(film.getId(), userId);
+                return null;
+            });
+        }
+
+        for (int i = 0; i < UPDATES_COUNT; i++) {
+            // Каждое изменение записывает в базу rate = 0 поверх уже поставленных лайков
+            Film version = film.toBuilder().description("Version " + i).build();
+            tasks.add(() -> {
+                filmService.updateFilm(version);
+                return null;
+            });
+        }
+
+        invokeAll(tasks);
+
+        Integer storedRate = jdbcTemplate.queryForObject("SELECT rate FROM films WHERE film_id = ?", Integer.class,
+                film.getId());
+
+        assertThat(popularityIndex.getRate(film.getId())).isEqualTo(storedRate);
+    }
+
+    private static Film film(int rate, int genreId) {
+        return Film.builder()
+                .name("Film")
+                .description("Popular")
+                .duration(100)
+                .rate(rate)
+                .releaseDate(LocalDate.of(2000, 1, 1))
+                .mpa(MPA.builder().id(1).build())
+                .genres(Set.of(FilmGenre.builder().id(genreId).build()))
+                .build();
+    }
+
+    private void invokeAll(List<Callable<Void>> tasks) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS_COUNT);
+
+        try {
+            for (Future<Void> future : executor.invokeAll(tasks)) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(1, TimeUnit.MINUTES);
+        }
+    }
+}
@@ -0,0 +1,156 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.service.FilmService;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.BEFORE_EACH_TEST_METHOD)
+public class QueryCountTest {
+    private static final AtomicInteger statements = new AtomicInteger();
+    private static final int FILMS_COUNT = 20;
+
+    private final FilmService filmService;
+    Film film;
+
+    @TestConfiguration
+    static class StatementCounterConfig {
+        // Оборачиваем DataSource, чтобы считать каждый Statement, который открывает приложение
+        @Bean
+        static BeanPostProcessor statementCounter() {
+            return new BeanPostProcessor() {
+                @Override
+                public Object postProcessAfterInitialization(Object bean, String beanName) {
+                    if (bean instanceof DataSource) {
+                        return new CountingDataSource((DataSource) bean);
+                    }
+
+                    return bean;
+                }
+            };
+        }
+    }
+
+    static class CountingDataSource extends DelegatingDataSource {
+        CountingDataSource(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public Connection getConnection() throws SQLException {
+            Connection connection = super.getConnection();
+
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class[]{Connection.class},
+                    (proxy, method, args) -> {
+                        if (method.getName().startsWith("prepare") || method.getName().equals("createStatement")) {
+                            statements.incrementAndGet();
+                        }
+
+                        try {
+                            return method.invoke(connection, args);
+                        } catch (InvocationTargetException ex) {
+                            throw ex.getCause();
+                        }
+                    });
+        }
+    }
+
+    @BeforeEach
+    public void createObjects() {
+        film = Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build(), FilmGenre.builder().id(5).build()))
+                .build();
+    }
+
+    @Test
+    public void getFilmQueryCountTest() {
+        int id = filmService.addFilm(film).getId();
+
+        statements.set(0);
+        filmService.getFilm(id);
+
+        assertThat(statements.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void getPopularFilmsQueryCountTest() {
+        for (int i = 0; i < FILMS_COUNT; i++) {
+            filmService.addFilm(film.toBuilder().rate(i).build());
+        }
+
+        statements.set(0);
+        List<Film> popular = filmService.getPopularFilms(FILMS_COUNT);
+
+        assertThat(popular.size()).isEqualTo(FILMS_COUNT);
+        assertThat(popular.get(0).getRate()).isEqualTo(FILMS_COUNT - 1);
+        assertThat(popular.get(0).getGenres().size()).isEqualTo(2);
+        assertThat(statements.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void addFilmQueryCountTest() {
+        statements.set(0);
+        filmService.addFilm(film);
+
+        // вставка фильма, один батч жанров и загрузка фильма
+        assertThat(statements.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void updateFilmQueryCountTest() {
+        film = filmService.addFilm(film);
+
+        statements.set(0);
+        filmService.updateFilm(film.toBuilder().name("Updated").build());
+
+        // обновление фильма, чтение сохраненных жанров и загрузка фильма
+        assertThat(statements.get()).isEqualTo(3);
+    }
+
+    @Test
+    public void updateFilmGenresQueryCountTest() {
+        film = filmService.addFilm(film);
+
+        statements.set(0);
+        Film updated = filmService.updateFilm(film.toBuilder()
+                .genres(Set.of(FilmGenre.builder().id(1).build(),
+                        FilmGenre.builder().id(2).build(),
+                        FilmGenre.builder().id(3).build()))
+                .build());
+
+        // к запросам обновления добавляются по одному батчу на удаление и вставку жанров
+        assertThat(updated.getGenres().size()).isEqualTo(3);
+        assertThat(statements.get()).isEqualTo(5);
+    }
+}
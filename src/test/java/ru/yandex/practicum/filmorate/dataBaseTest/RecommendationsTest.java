@@ -0,0 +1,166 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+import ru.yandex.practicum.filmorate.storage.index.LikeIndex;
+import ru.yandex.practicum.filmorate.validationExceptions.UserNotFoundException;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class RecommendationsTest {
+    private static final int NEIGHBORS = 50;
+
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+    List<Film> films;
+    List<User> users;
+
+    @BeforeEach
+    public void createObjects() {
+        films = new ArrayList<>();
+        users = new ArrayList<>();
+
+        for (int i = 0; i < 4; i++) {
+            films.add(filmService.addFilm(Film.builder()
+                    .name("Film " + i)
+                    .description("Cool")
+                    .duration(125)
+                    .releaseDate(LocalDate.of(1905, 5, 24))
+                    .mpa(MPA.builder().id(3).build())
+                    .build()));
+            users.add(userService.create(User.builder()
+                    .email("user" + i + "@yandex.ru")
+                    .login("user" + i)
+                    .birthday(LocalDate.of(1978, 3, 15))
+                    .build()));
+        }
+    }
+
+    @Test
+    public void recommendationsTest() {
+        like(0, 0, 1);
+        like(1, 0, 1, 2);
+        like(2, 0, 3);
+
+        // У второго пользователя два общих лайка, у третьего - один
+        assertThat(recommend(0, 10)).isEqualTo(List.of(film(2), film(3)));
+        assertThat(recommend(0, 1)).isEqualTo(List.of(film(2)));
+
+        filmService.deleteLikeOnFilm(film(1), users.get(0).getId());
+
+        // Теперь оба соседа весят одинаково, фильмы с равным весом идут по id
+        assertThat(recommend(0, 10)).isEqualTo(List.of(film(1), film(2), film(3)));
+        assertThat(recommend(3, 10)).isEqualTo(List.of());
+    }
+
+    @Test
+    public void unknownUserRecommendationsTest() {
+        Assertions.assertThrows(UserNotFoundException.class, () -> filmService.getRecommendations(9999, 10));
+    }
+
+    @Test
+    public void parallelScoringMatchesBruteForceTest() {
+        Random random = new Random(42);
+        LikeIndex index = new LikeIndex(jdbcTemplate, NEIGHBORS, 4);
+        Map<Integer, Set<Integer>> likes = new HashMap<>();
+
+        // Популярных фильмов мало, поэтому подсчет общих лайков делится на несколько задач
+        for (int user = 1; user <= 5_000; user++) {
+            Set<Integer> liked = new HashSet<>();
+
+            for (int j = 0; j < 20; j++) {
+                liked.add(random.nextInt(10) == 0 ? 1 + random.nextInt(2_000) : 1 + random.nextInt(30));
+            }
+
+            for (Integer film : liked) {
+                index.like(film, user);
+            }
+
+            likes.put(user, liked);
+        }
+
+        try {
+            for (int user = 1; user <= 20; user++) {
+                assertThat(index.recommend(user, 10)).isEqualTo(bruteForce(likes, user, 10));
+            }
+        } finally {
+            index.stop();
+        }
+    }
+
+    private List<Integer> bruteForce(Map<Integer, Set<Integer>> likes, int userId, int count) {
+        Set<Integer> liked = likes.get(userId);
+        Map<Integer, Integer> overlaps = new HashMap<>();
+
+        likes.forEach((user, films) -> {
+            if (user != userId) {
+                int overlap = (int) films.stream().filter(liked::contains).count();
+
+                if (overlap > 0) {
+                    overlaps.put(user, overlap);
+                }
+            }
+        });
+
+        Comparator<Map.Entry<Integer, Integer>> byScore = Map.Entry.<Integer, Integer>comparingByValue().reversed()
+                .thenComparing(Map.Entry.comparingByKey());
+        Map<Integer, Integer> scores = new HashMap<>();
+
+        overlaps.entrySet().stream()
+                .sorted(byScore)
+                .limit(NEIGHBORS)
+                .forEach(neighbor -> likes.get(neighbor.getKey()).stream()
+                        .filter(film -> !liked.contains(film))
+                        .forEach(film -> scores.merge(film, neighbor.getValue(), Integer::sum)));
+
+        return scores.entrySet().stream()
+                .sorted(byScore)
+                .limit(count)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+
+    private void like(int user, int... filmIndexes) {
+        for (int filmIndex : filmIndexes) {
+            filmService.putLikeOnFilm(film(filmIndex), users.get(user).getId());
+        }
+    }
+
+    private int film(int index) {
+        return films.get(index).getId();
+    }
+
+    private List<Integer> recommend(int user, int count) {
+        return filmService.getRecommendations(users.get(user).getId(), count).stream()
+                .map(Film::getId)
+                .collect(Collectors.toList());
+    }
+}
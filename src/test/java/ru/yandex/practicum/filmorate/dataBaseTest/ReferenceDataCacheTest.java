@@ -0,0 +1,81 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.storage.db.ReferenceDataCache;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.assertj.core.api.AssertionsForClassTypes.assertThat;
+
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class ReferenceDataCacheTest {
+    private final ReferenceDataCache referenceData;
+    private final JdbcTemplate jdbcTemplate;
+
+    @Test
+    public void snapshotLookupsTest() {
+        List<FilmGenre> genres = referenceData.getAllGenres();
+
+        assertThat(genres.size()).isEqualTo(6);
+        assertThat(genres.get(0)).isEqualTo(FilmGenre.builder().id(1).name("Комедия").build());
+        assertThat(referenceData.getGenre(1)).isSameAs(genres.get(0));
+        assertThat(referenceData.getAllMPA().size()).isEqualTo(5);
+        assertThat(referenceData.getMPA(3).getName()).isEqualTo("PG-13");
+
+        Assertions.assertThrows(NoSuchElementException.class, () -> referenceData.getGenre(0));
+        Assertions.assertThrows(NoSuchElementException.class, () -> referenceData.getGenre(99));
+        Assertions.assertThrows(NoSuchElementException.class, () -> referenceData.getMPA(-1));
+        Assertions.assertThrows(UnsupportedOperationException.class, () -> genres.add(genres.get(0)));
+    }
+
+    @Test
+    public void sharedInstancesAreImmutableTest() {
+        // Экземпляры справочников одни на весь процесс, изменить их не должно быть возможности
+        for (Class<?> type : List.of(FilmGenre.class, MPA.class)) {
+            assertThat(Arrays.stream(type.getMethods()).map(Method::getName).noneMatch(name -> name.startsWith("set")))
+                    .isTrue();
+        }
+
+        FilmGenre genre = referenceData.getGenre(1);
+        FilmGenre renamed = genre.toBuilder().name("Другое").build();
+
+        assertThat(renamed.getName()).isEqualTo("Другое");
+        assertThat(referenceData.getGenre(1).getName()).isEqualTo("Комедия");
+    }
+
+    @Test
+    public void refreshPicksUpDatabaseChangesTest() {
+        long version = referenceData.getVersion();
+        FilmGenre before = referenceData.getGenre(1);
+
+        jdbcTemplate.update("UPDATE genre SET name = 'Комедия положений' WHERE genre_id = 1");
+        jdbcTemplate.update("INSERT INTO mpa (mpa_id, title) VALUES (6, 'X')");
+
+        // До refresh() читатели видят прежний снимок
+        assertThat(referenceData.getGenre(1).getName()).isEqualTo("Комедия");
+        Assertions.assertThrows(NoSuchElementException.class, () -> referenceData.getMPA(6));
+
+        referenceData.refresh();
+
+        assertThat(referenceData.getVersion()).isGreaterThan(version);
+        assertThat(referenceData.getGenre(1).getName()).isEqualTo("Комедия положений");
+        assertThat(referenceData.getMPA(6).getName()).isEqualTo("X");
+        assertThat(referenceData.getAllMPA().size()).isEqualTo(6);
+        assertThat(before.getName()).isEqualTo("Комедия");
+    }
+}
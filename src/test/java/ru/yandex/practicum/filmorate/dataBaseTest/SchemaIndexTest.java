@@ -0,0 +1,133 @@
+package ru.yandex.practicum.filmorate.dataBaseTest;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.yandex.practicum.filmorate.model.Film;
+import ru.yandex.practicum.filmorate.model.FilmGenre;
+import ru.yandex.practicum.filmorate.model.MPA;
+import ru.yandex.practicum.filmorate.model.User;
+import ru.yandex.practicum.filmorate.service.FilmService;
+import ru.yandex.practicum.filmorate.service.UserService;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+ * Индексы схемы. Наличие индексов V2 проверяется по INFORMATION_SCHEMA: H2 сам индексирует внешние ключи,
+ * поэтому по одним планам их отсутствие не заметить. Планы строятся для запросов, которые хранилища
+ * действительно отправляют в базу: их текст берется из статистики запросов H2.
+ */
+@SpringBootTest
+@AutoConfigureTestDatabase
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+public class SchemaIndexTest {
+    private final FilmService filmService;
+    private final UserService userService;
+    private final JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    public void enableQueryStatistics() {
+        jdbcTemplate.execute("SET QUERY_STATISTICS TRUE");
+    }
+
+    @AfterEach
+    public void disableQueryStatistics() {
+        jdbcTemplate.execute("SET QUERY_STATISTICS FALSE");
+    }
+
+    @Test
+    public void migrationIndexesExistTest() {
+        assertThat(indexColumns("FILMS_RATE_IDX")).containsExactly("FILMS.RATE DESC", "FILMS.FILM_ID ASC");
+        assertThat(indexColumns("USERS_LIKE_USER_IDX"))
+                .containsExactly("USERS_LIKE.USER_ID ASC", "USERS_LIKE.FILM_ID ASC");
+        assertThat(indexColumns("USER_FRIENDS_FRIEND_IDX"))
+                .containsExactly("USER_FRIENDS.FRIEND_ID ASC", "USER_FRIENDS.USER_ID ASC");
+        assertThat(indexColumns("FILMS_GENRE_GENRE_IDX"))
+                .containsExactly("FILMS_GENRE.GENRE_ID ASC", "FILMS_GENRE.FILM_ID ASC");
+    }
+
+    @Test
+    public void storageQueriesUseIndexesTest() {
+        Film film = filmService.addFilm(Film.builder()
+                .name("Film")
+                .description("Cool")
+                .duration(125)
+                .releaseDate(LocalDate.of(1905, 5, 24))
+                .mpa(MPA.builder().id(3).build())
+                .genres(Set.of(FilmGenre.builder().id(1).build()))
+                .build());
+        User firstUser = userService.create(User.builder()
+                .email("First@yandex.ru")
+                .login("first")
+                .birthday(LocalDate.of(1978, 3, 15))
+                .build());
+        User secondUser = userService.create(User.builder()
+                .email("Second@yandex.ru")
+                .login("second")
+                .birthday(LocalDate.of(1999, 7, 10))
+                .build());
+
+        // Точечные операции; полные выгрузки (getFilms, перестройка индексов, починка полей) читают таблицы целиком
+        userService.addFriend(firstUser.getId(), secondUser.getId());
+        userService.addFriend(secondUser.getId(), firstUser.getId());
+        userService.getFriends(firstUser.getId());
+        userService.getCommonFriends(firstUser.getId(), secondUser.getId());
+        userService.deleteFriend(firstUser.getId(), secondUser.getId());
+        filmService.putLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.deleteLikeOnFilm(film.getId(), firstUser.getId());
+        filmService.updateFilm(film.toBuilder().genres(Set.of(FilmGenre.builder().id(2).build())).build());
+        filmService.getFilm(film.getId());
+        filmService.getFilmsPage(0, 10);
+        userService.getPage(0, 10);
+
+        Map<String, String> plans = issuedQueries().stream()
+                .collect(Collectors.toMap(sql -> sql, this::explain));
+
+        assertThat(plans.keySet()).contains(
+                "SELECT u.* FROM user_friends AS uf JOIN users AS u ON uf.friend_id = u.id WHERE uf.user_id = ?",
+                "DELETE FROM users_like WHERE film_id = ? AND user_id = ?",
+                "SELECT film_id FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?",
+                "SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?");
+        plans.forEach((sql, plan) -> assertThat(plan).as(sql).doesNotContain("tableScan"));
+        assertThat(plans.get("SELECT film_id FROM films WHERE film_id > ? ORDER BY film_id LIMIT ?"))
+                .contains("index sorted");
+        assertThat(plans.get("SELECT * FROM users WHERE id > ? ORDER BY id LIMIT ?")).contains("index sorted");
+    }
+
+    private List<String> indexColumns(String indexName) {
+        return jdbcTemplate.queryForList("SELECT TABLE_NAME || '.' || COLUMN_NAME || ' ' || ORDERING_SPECIFICATION " +
+                "FROM INFORMATION_SCHEMA.INDEX_COLUMNS WHERE INDEX_NAME = ? ORDER BY ORDINAL_POSITION", String.class,
+                indexName);
+    }
+
+    // Чтения и изменения по таблицам приложения; служебные команды пула и транзакций планов не имеют
+    private List<String> issuedQueries() {
+        return jdbcTemplate.queryForList("SELECT SQL_STATEMENT FROM INFORMATION_SCHEMA.QUERY_STATISTICS", String.class)
+                .stream()
+                .filter(sql -> sql.startsWith("SELECT") || sql.startsWith("UPDATE") || sql.startsWith("DELETE"))
+                .collect(Collectors.toList());
+    }
+
+    // План от значений параметров не зависит, поэтому все они заменяются единицей
+    private String explain(String sql) {
+        Object[] args = new Object[(int) sql.chars().filter(c -> c == '?').count()];
+
+        Arrays.fill(args, 1);
+
+        return jdbcTemplate.queryForObject("EXPLAIN " + sql, String.class, args);
+    }
+}